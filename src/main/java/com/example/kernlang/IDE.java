@@ -2,7 +2,12 @@ package com.example.kernlang;
 
 import com.example.kernlang.codebase_viewer.CodebaseViewer;
 import com.example.kernlang.codebase_viewer.DBManager;
+import com.example.kernlang.compiler.Compiler;
+import com.example.kernlang.compiler.jit.JvmCompiler;
+import com.example.kernlang.compiler.vm.VM;
 import com.example.kernlang.db.DataAccessException;
+import javafx.scene.control.Alert;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
@@ -27,6 +32,20 @@ public class IDE extends BorderPane {
                 MenuItem compileItem = new MenuItem("Compile");
                 compileItem.setOnAction(e -> codebaseViewer.compileNodes());
 
+                CheckMenuItem packratItem = new CheckMenuItem("Packrat Parsing");
+                packratItem.setSelected(Compiler.isPackratParsing());
+                packratItem.setOnAction(e -> Compiler.setPackratParsing(packratItem.isSelected()));
+
+                // turning the VM off runs everything on the tree-walking interpreter instead
+                CheckMenuItem vmItem = new CheckMenuItem("Bytecode VM");
+                vmItem.setSelected(VM.isEnabled());
+                vmItem.setOnAction(e -> VM.setEnabled(vmItem.isSelected()));
+
+                // hot functions get compiled to JVM bytecode, turning this off keeps them interpreted
+                CheckMenuItem jitItem = new CheckMenuItem("Compile Hot Functions");
+                jitItem.setSelected(JvmCompiler.isEnabled());
+                jitItem.setOnAction(e -> JvmCompiler.setEnabled(jitItem.isSelected()));
+
                 MenuItem openItem = new MenuItem("Open");
                 openItem.setOnAction(e -> {
                     File file = new FileChooser().showOpenDialog(getScene().getWindow());
@@ -55,12 +74,34 @@ public class IDE extends BorderPane {
                 MenuItem clearItem = new MenuItem("Clear");
                 clearItem.setOnAction(e -> new ClearPopup(codebaseViewer));
 
-                projectMenu.getItems().addAll(compileItem, openItem, exportItem, clearItem);
+                projectMenu.getItems().addAll(compileItem, packratItem, vmItem, jitItem, openItem, exportItem, clearItem);
             }
 
             // statistics menu
             Menu statisticsMenu = new Menu("Statistics");
-            {}
+            {
+                MenuItem compileStatsItem = new MenuItem("Last Compile");
+                compileStatsItem.setOnAction(e -> {
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Compile Statistics");
+                    alert.setHeaderText(null);
+                    alert.setContentText(Compiler.getLastStatistics().toString());
+
+                    alert.showAndWait();
+                });
+
+                MenuItem processStatsItem = new MenuItem("Processes");
+                processStatsItem.setOnAction(e -> {
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Process Statistics");
+                    alert.setHeaderText(null);
+                    alert.setContentText(codebaseViewer.getGraphWindowState().getOS().getStatistics());
+
+                    alert.showAndWait();
+                });
+
+                statisticsMenu.getItems().addAll(compileStatsItem, processStatsItem);
+            }
 
             // language extensions menu
             Menu langExtMenu = new Menu("Language Extensions");
@@ -2,6 +2,9 @@ package com.example.kernlang.codebase_viewer;
 
 import com.example.kernlang.codebase_viewer.graph.GraphEdge;
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.Compiler;
+import com.example.kernlang.db.CompiledAstData;
+import com.example.kernlang.db.DAOAbstraction.CompiledAstDAO;
 import com.example.kernlang.db.DAOAbstraction.DataAccessContext;
 import com.example.kernlang.db.DAOAbstraction.DataAccessProvider;
 import com.example.kernlang.db.DAOAbstraction.GraphEdgeDAO;
@@ -13,6 +16,7 @@ import com.example.kernlang.db.jdbc.JDBCDataAccessProvider;
 
 import java.io.File;
 import java.sql.SQLException;
+import java.util.HashMap;
 
 public class DBManager {
     private DataAccessProvider dap;
@@ -28,8 +32,13 @@ public class DBManager {
         //for node in resultset:
         //    codeViewerModel.add(new Graphnode...)
         //gws.clearImage();
+        HashMap<Integer, CompiledAstData> compiledAsts = new HashMap<>();
+        for (CompiledAstData compiledAst : dap.getDataAccessContent().getCompiledAstDAO().getAllCompiledAsts()) {
+            compiledAsts.put(compiledAst.nodeID(), compiledAst);
+        }
+
         for (NodeData nodeData : dap.getDataAccessContent().getGraphNodeDAO().getAllGraphNodes()) {
-            gws.addNodeFromDB(nodeData);
+            gws.addNodeFromDB(nodeData, compiledAsts.get(nodeData.id()));
         }
 
         for (EdgeData edgeData : dap.getDataAccessContent().getGraphEdgeDAO().getAllEdges()) {
@@ -65,6 +74,16 @@ public class DBManager {
                     geDAO.addNewEdge(ge);
                 }
             }
+
+            // store the compiled syntax trees too, so the project opens without having to compile everything again
+            CompiledAstDAO astDAO = dac.getCompiledAstDAO();
+            for (GraphNode gn : gws.getGraphNodes()) {
+                // only nodes that were compiled from their current code have one
+                if (gn.getEncodedAst() != null) {
+                    astDAO.addCompiledAst(new CompiledAstData(
+                            gn.getDatabaseID(), Compiler.sourceHash(gn.getCodeString()), gn.getEncodedAst()));
+                }
+            }
         } catch (SQLException | DataAccessException ex) {
             throw new DataAccessException("couldn't make db at path" + file.getPath(), ex);
         }
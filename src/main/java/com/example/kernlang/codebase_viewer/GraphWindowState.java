@@ -6,6 +6,7 @@ import com.example.kernlang.codebase_viewer.graph.GraphEdge;
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
 import com.example.kernlang.codebase_viewer.graph.Types;
 import com.example.kernlang.compiler.Compiler;
+import com.example.kernlang.db.CompiledAstData;
 import com.example.kernlang.db.EdgeData;
 import com.example.kernlang.db.NodeData;
 import com.example.kernlang.operating_system.OS;
@@ -61,6 +62,10 @@ public class GraphWindowState {
         os.addNewProcess(n);
     }
 
+    public OS getOS() {
+        return os;
+    }
+
     public void setTextEditorNode(GraphNode node) {
         textEditor.setCurrentNode(node);
     }
@@ -70,14 +75,14 @@ public class GraphWindowState {
         for (int i = 0; i < imports.size(); i++) {
             GraphEdge e = imports.get(i);
             e.getEndNode().getExports().remove(e);
-            node.getImports().remove(e);
+            node.removeImport(e);
             cbv.getChildren().remove(e);
             cbv.getChildren().remove(e.getArrowHead());
         }
         ArrayList<GraphEdge> exports = node.getExports();
         for (int i = 0; i < exports.size(); i++) {
             GraphEdge e = exports.get(i);
-            e.getStartNode().getImports().remove(e);
+            e.getStartNode().removeImport(e);
             node.getExports().remove(e);
             cbv.getChildren().remove(e);
             cbv.getChildren().remove(e.getArrowHead());
@@ -183,11 +188,17 @@ public class GraphWindowState {
         e.setArrowHead(arrowHead);
     }
 
-    public void addNodeFromDB(NodeData nodeData) {
+    public void addNodeFromDB(NodeData nodeData, CompiledAstData compiledAst) {
         currentNodeCount++;
         GraphNode node = new GraphNode(nodeData.name(), nodeData.xpos(), nodeData.ypos(), this, nodeData.id());
         node.setNodeType(Types.UNIT);
         node.setCodeString(nodeData.code());
+        // a syntax tree that was compiled from exactly this code means the node doesn't need compiling anymore,
+        // it only gets decoded once the node is actually used
+        if (compiledAst != null && Compiler.isStoredAstUsable(compiledAst.sourceHash(), nodeData.code())) {
+            node.setEncodedAst(compiledAst.ast());
+            node.setCompiled();
+        }
         cbv.getChildren().add(node);
         graphNodes.add(node);
     }
@@ -2,18 +2,23 @@ package com.example.kernlang.codebase_viewer.graph;
 
 import com.example.kernlang.codebase_viewer.GraphWindowState;
 import com.example.kernlang.codebase_viewer.popup_screens.NodeContextMenu;
+import com.example.kernlang.compiler.cache.AstReader;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.expressions.Literal;
-import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
-import com.example.kernlang.compiler.parser.expressions.literals.UnitLiteral;
+import com.example.kernlang.compiler.parser.expressions.literals.*;
 import com.example.kernlang.compiler.parser.statements.ReturnStmt;
 import com.example.kernlang.compiler.parser.statements.Statement;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.Value;
+import com.example.kernlang.compiler.vm.VM;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.text.Text;
 
+import java.lang.invoke.SwitchPoint;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -24,7 +29,17 @@ public class GraphNode extends Pane {
     private final Text nodeNameText;
     public final String name;
 
-    private ASTNode astLiteralExpr;
+    // read by the processes on the worker threads, replaced by assignments from any of them
+    private volatile ASTNode astLiteralExpr;
+
+    // what the syntax tree evaluated to, only kept for syntax trees that evaluate to the same thing every time
+    private record CachedValue(ASTNode ast, ASTNode value) {}
+    private volatile CachedValue cachedValue = null;
+    // guards decoding the syntax tree, and replacing it together with the cached value
+    private final Object astLock = new Object();
+
+    // the compiled form of the code string, the syntax tree gets built from this when it's first needed
+    private volatile byte[] encodedAst = null;
 
     private Types type;
     private String codeString = "";
@@ -38,6 +53,12 @@ public class GraphNode extends Pane {
 
     private boolean isCompiled = false;
 
+    // bumped whenever an import is added or removed, so identifiers bound to an import know to look it up again
+    private volatile int importsVersion = 0;
+
+    // what code compiled to JVM bytecode assumes about this node's syntax tree and imports, see JvmCompiler
+    private SwitchPoint jitAssumptions = null;
+
     // These fields contain the edges of the imports, and the edges of the exports
     private final ArrayList<GraphEdge> imports;
     private final ArrayList<GraphEdge> exports;
@@ -90,6 +111,7 @@ public class GraphNode extends Pane {
     public void setCodeString(String codeString) {
         this.codeString = codeString;
         this.isCompiled = false;
+        this.encodedAst = null;
     }
 
     public String getCodeString() {
@@ -139,6 +161,8 @@ public class GraphNode extends Pane {
         GraphEdge edge = new GraphEdge(this, isBound);
         edge.setEndNode(importNode);
         imports.add(edge);
+        importsVersion++;
+        invalidateJitAssumptions();
         importNode.addExport(edge);
     }
 
@@ -146,7 +170,39 @@ public class GraphNode extends Pane {
         exports.add(exportEdge);
     }
 
-    public void addImport(GraphEdge edge) { imports.add(edge); }
+    public void addImport(GraphEdge edge) {
+        imports.add(edge);
+        importsVersion++;
+        invalidateJitAssumptions();
+    }
+
+    public void removeImport(GraphEdge edge) {
+        imports.remove(edge);
+        importsVersion++;
+        invalidateJitAssumptions();
+    }
+
+    public int getImportsVersion() {
+        return importsVersion;
+    }
+
+    /**
+     * @return the switch point that gets invalidated once this node's syntax tree or imports change
+     */
+    public synchronized SwitchPoint getJitAssumptions() {
+        if (jitAssumptions == null) jitAssumptions = new SwitchPoint();
+        return jitAssumptions;
+    }
+
+    private void invalidateJitAssumptions() {
+        SwitchPoint assumptions;
+        synchronized (this) {
+            assumptions = jitAssumptions;
+            jitAssumptions = null;
+        }
+        // nodes nothing got compiled against don't have one, which saves the JVM from deoptimizing for nothing
+        if (assumptions != null) SwitchPoint.invalidateAll(new SwitchPoint[]{assumptions});
+    }
 
     public ArrayList<GraphEdge> getImports() {
         return this.imports;
@@ -282,7 +338,11 @@ public class GraphNode extends Pane {
     }
 
     public void setAstExpr(ASTNode astLiteralExpr) {
-        this.astLiteralExpr = astLiteralExpr;
+        synchronized (astLock) {
+            this.astLiteralExpr = astLiteralExpr;
+            this.cachedValue = null;
+        }
+        invalidateJitAssumptions();
     }
 
     public void setCompiled() {
@@ -293,8 +353,70 @@ public class GraphNode extends Pane {
         return isCompiled;
     }
 
+    public void setEncodedAst(byte[] encodedAst) {
+        this.encodedAst = encodedAst;
+    }
+
+    public byte[] getEncodedAst() {
+        return encodedAst;
+    }
+
     public ASTNode getAST() {
-        return this.astLiteralExpr;
+        ASTNode ast = this.astLiteralExpr;
+        if (ast != null || encodedAst == null) return ast;
+
+        // nodes opened from a db only decode their syntax tree once something actually uses it,
+        // which may be several processes at once, and they all have to end up with the same tree
+        synchronized (astLock) {
+            if (this.astLiteralExpr == null && encodedAst != null) {
+                ast = AstReader.decode(encodedAst);
+                ast.resolve(new Scope(this));
+                // only shown to the other threads once it's resolved
+                this.astLiteralExpr = ast;
+            }
+            return this.astLiteralExpr;
+        }
+    }
+
+    /**
+     * @return what the syntax tree of this node evaluates to, which is what importing nodes get to see
+     */
+    public ASTNode getValue() {
+        while (true) {
+            ASTNode ast = getAST();
+            CachedValue cached = cachedValue;
+            // an assignment may have swapped the syntax tree since, without this thread seeing the cache being cleared
+            if (cached != null && cached.ast() == ast) return cached.value();
+
+            // evaluated outside of the lock, the expression may well read other nodes
+            ASTNode value = ast.interpret(this, Frame.EMPTY);
+            if (!isConstant(ast)) return value;
+
+            synchronized (astLock) {
+                // another process got here first, or something got assigned to the node meanwhile,
+                // then what the node holds now is what everyone gets to see (and this value never got out)
+                if (this.astLiteralExpr != ast) continue;
+                if (ast instanceof RecordLiteral && value != ast) {
+                    // the node holds on to the record its literal evaluated to (as if it got assigned),
+                    // so changes to its fields show in the node while the parsed literal stays untouched
+                    this.astLiteralExpr = value;
+                    ast = value;
+                }
+                cachedValue = new CachedValue(ast, value);
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Values, literals and functions evaluate to the same thing every time.
+     * A record literal evaluates to a new record, which is kept so that assignments to its fields stick,
+     * other expressions could depend on nodes that change and have to be evaluated on every read.
+     */
+    private static boolean isConstant(ASTNode ast) {
+        return ast instanceof Value || ast instanceof NumberLiteral || ast instanceof CharLiteral
+                || ast instanceof BoolLiteral || ast instanceof UnitLiteral || ast instanceof FunctionLiteral
+                || ast instanceof RecordLiteral || ast instanceof ArrayLiteral;
     }
 
     public HashMap<String, ASTNode> getContext() {
@@ -307,14 +429,17 @@ public class GraphNode extends Pane {
     }
 
     public void runNode() {
-        if (this.astLiteralExpr instanceof FunctionLiteral) {
-            this.astLiteralExpr.interpret(this, new HashMap<>());
-            // getting the actual function literal
-            FunctionLiteral fLit = (FunctionLiteral) this.astLiteralExpr;
+        if (getAST() instanceof FunctionLiteral fLit) {
+            fLit.interpret(this, Frame.EMPTY);
+
+            if (VM.isEnabled()) {
+                fLit.call(new Frame(fLit, fLit.getFrameSize()));
+                return;
+            }
 
             // statements
             for (Statement stmt : fLit.getStatements()) {
-                stmt.interpret(fLit.getFunctionContext(), new HashMap<>());
+                stmt.interpret(fLit.getFunctionContext(), new Frame(fLit, fLit.getFrameSize()));
             }
         } else {
             // perhaps it is a composition of functions or something?
@@ -2,6 +2,7 @@ package com.example.kernlang.codebase_viewer.popup_screens;
 
 import com.example.kernlang.codebase_viewer.GraphWindowState;
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.runtime.CallStack;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
@@ -32,7 +33,8 @@ public class NodeContextMenu extends ContextMenu {
         runCode.setOnAction(e -> {
             //Interpreter interpreter = new Interpreter();
             //interpreter.runFunction(node);
-            node.runNode();
+            // deep recursion needs a bigger stack than the JavaFX thread has
+            CallStack.newThread(node.getName(), node::runNode).start();
         });
 
         MenuItem runApp = new MenuItem("Run App");
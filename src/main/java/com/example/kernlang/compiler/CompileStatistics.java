@@ -0,0 +1,118 @@
+package com.example.kernlang.compiler;
+
+/**
+ * Some numbers about a single run of the compiler, shown in the statistics menu of the IDE.
+ */
+public class CompileStatistics {
+    private int parsedNodes = 0;
+    private int skippedNodes = 0;
+    private int failedNodes = 0;
+
+    private boolean packratParsing = false;
+    private long memoHits = 0;
+    private long memoMisses = 0;
+
+    private int cacheHits = 0;
+    private int cacheMisses = 0;
+
+    private int workerThreads = 1;
+    private long compileTimeNanos = 0;
+
+    public void nodeParsed() {
+        parsedNodes++;
+    }
+
+    public void nodeSkipped() {
+        skippedNodes++;
+    }
+
+    public void nodeFailed() {
+        failedNodes++;
+    }
+
+    public void cacheHit() {
+        cacheHits++;
+    }
+
+    public void cacheMiss() {
+        cacheMisses++;
+    }
+
+    public void setPackratParsing(boolean packratParsing) {
+        this.packratParsing = packratParsing;
+    }
+
+    public void addMemoCounts(long hits, long misses) {
+        memoHits += hits;
+        memoMisses += misses;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public void setCompileTimeNanos(long compileTimeNanos) {
+        this.compileTimeNanos = compileTimeNanos;
+    }
+
+    public int getParsedNodes() {
+        return parsedNodes;
+    }
+
+    public int getSkippedNodes() {
+        return skippedNodes;
+    }
+
+    public int getFailedNodes() {
+        return failedNodes;
+    }
+
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public int getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * @return the percentage of looked up nodes that didn't need to be parsed
+     */
+    public double getCacheHitRate() {
+        int lookups = cacheHits + cacheMisses;
+        return lookups == 0 ? 0 : 100.0 * cacheHits / lookups;
+    }
+
+    public long getMemoHits() {
+        return memoHits;
+    }
+
+    public long getMemoMisses() {
+        return memoMisses;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public long getCompileTimeNanos() {
+        return compileTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        String result = "parsed nodes: " + parsedNodes +
+                "\nskipped nodes: " + skippedNodes +
+                "\nfailed nodes: " + failedNodes;
+
+        result += "\ncompile cache: " + cacheHits + " hits, " + cacheMisses + " misses" +
+                String.format(" (%.0f%% hit rate)", getCacheHitRate());
+
+        if (packratParsing) result += "\npackrat memo: " + memoHits + " hits, " + memoMisses + " misses";
+        else result += "\npackrat memo: disabled";
+
+        result += "\nworker threads: " + workerThreads;
+        result += "\ncompile time: " + compileTimeNanos / 1_000_000 + " ms";
+        return result;
+    }
+}
@@ -1,43 +1,189 @@
 package com.example.kernlang.compiler;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.CompileCache;
+import com.example.kernlang.compiler.lexer.Lexer;
+import com.example.kernlang.compiler.lexer.TokenStream;
 import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.ParseMemo;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.Expr;
+import com.example.kernlang.compiler.resolver.Scope;
+
+import javafx.application.Platform;
 
 import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 public class Compiler {
+    // opt-in, since the memo table costs memory for every rule tried at every position
+    private static boolean packratParsing = false;
+
+    private static CompileStatistics lastStatistics = new CompileStatistics();
+
+    // syntax trees of earlier compiles, so unchanged code doesn't get parsed again (e.g. after reopening a project)
+    private static final CompileCache compileCache = new CompileCache();
+
+    // one worker per core, its threads are daemons so they never keep the IDE from closing
+    private static final ForkJoinPool compilePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Parses all nodes that changed since they were last compiled.
+     * The parsing itself happens in parallel on the compilePool, so the UI doesn't freeze on big projects,
+     * the resulting ASTs are committed to the nodes (and errors are shown) back on the JavaFX thread.
+     */
     public static void compile(ArrayList<GraphNode> nodes) {
-        ArrayList<String> errors = new ArrayList<>();
+        CompileStatistics statistics = new CompileStatistics();
+        long startTime = System.nanoTime();
+        ArrayList<CompletableFuture<NodeResult>> results = startParsing(nodes, statistics);
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenRun(() -> Platform.runLater(() -> {
+                    ArrayList<String> errors = commitResults(results, statistics, startTime);
+                    if (errors.size() == 0) {
+                        // show popup saying the compilation was successful
+                    } else {
+                        // show popup with errors
+                        new CompileErrorPopup(errors);
+                    }
+                }));
+    }
+
+    /**
+     * Same as compile, but for when there is no IDE (and so no JavaFX thread):
+     * waits for the parsing to finish, and commits the results on the calling thread.
+     * @return the errors, which would otherwise have been shown in a popup
+     */
+    public static ArrayList<String> compileNow(ArrayList<GraphNode> nodes) {
+        CompileStatistics statistics = new CompileStatistics();
+        long startTime = System.nanoTime();
+        ArrayList<CompletableFuture<NodeResult>> results = startParsing(nodes, statistics);
+        return commitResults(results, statistics, startTime);
+    }
+
+    private static ArrayList<CompletableFuture<NodeResult>> startParsing(ArrayList<GraphNode> nodes, CompileStatistics statistics) {
+        statistics.setPackratParsing(packratParsing);
+        statistics.setWorkerThreads(compilePool.getParallelism());
 
+        // the workers only get to see the code strings, the nodes themselves belong to the JavaFX thread
+        ArrayList<CompletableFuture<NodeResult>> results = new ArrayList<>();
         for (GraphNode node : nodes) {
-            try {
-                //ArrayList<Token> tokens = new Lexer(node.getCodeString(), node).lexCode(errors);
+            if (node == null || node.isCompiled() || node.getCodeString().strip().equals("")) {
+                statistics.nodeSkipped();
+                continue;
+            }
 
-                if (node == null || node.isCompiled() || node.getCodeString().strip().equals("")) continue;
+            String code = node.getCodeString();
+            boolean memoize = packratParsing;
+            results.add(CompletableFuture.supplyAsync(() -> parseNode(node, code, memoize), compilePool));
+        }
+        return results;
+    }
 
-                ParseResult res = new Expr().parse(node.getCodeString());// = //new Parser(tokens, node).parseLiteral();
-                if (res.syntaxNode().isPresent()) {
-                    ASTNode astExpr = res.syntaxNode().get();
+    private record NodeResult(GraphNode node, String code, ParseResult parseResult, byte[] encodedAst, String error,
+                              boolean cacheHit, long memoHits, long memoMisses) {}
+
+    private static NodeResult parseNode(GraphNode node, String code, boolean memoize) {
+        try {
+            TokenStream tokens = new Lexer(code).lexCode();
+            String contentHash = CompileCache.contentHash(tokens);
+            byte[] cachedAst = compileCache.lookup(contentHash);
+            if (cachedAst != null) {
+                ParseResult res = new ParseResult(Optional.of(AstReader.decode(cachedAst)), tokens.size() - 1, "");
+                return new NodeResult(node, code, res, cachedAst, null, true, 0, 0);
+            }
+
+            ParseMemo memo = memoize ? new ParseMemo() : null;
+            SourceBuffer source = new SourceBuffer(tokens, memo);
+            ParseResult res = new Expr().parse(source, 0);
+            // the expression has to be the whole node, otherwise e.g. '1 +' would quietly compile to 1
+            if (res.syntaxNode().isPresent() && !source.isAtEnd(res.position())) {
+                res = new ParseResult(Optional.empty(), res.position(),
+                        "unexpected '" + source.text(res.position()) + "' after the expression");
+            }
+            byte[] encodedAst = null;
+            if (res.syntaxNode().isPresent()) encodedAst = compileCache.store(contentHash, res.syntaxNode().get());
+            return new NodeResult(node, code, res, encodedAst, null, false,
+                    memo == null ? 0 : memo.getHits(), memo == null ? 0 : memo.getMisses());
+        } catch (ParseError parseError) {
+            return new NodeResult(node, code, null, null, parseError.toString(), false, 0, 0);
+        } catch (RuntimeException e) {
+            // anything else going wrong while compiling the node would otherwise make the whole compile disappear
+            // (allOf never gets to run its thenRun), so it gets reported with the rest of the errors
+            return new NodeResult(node, code, null, null, "internal compiler error: " + e, false, 0, 0);
+        } catch (StackOverflowError e) {
+            // the parser recurses for every level of nesting, deep enough code runs out of the worker's stack
+            return new NodeResult(node, code, null, null, "code is nested too deeply to parse", false, 0, 0);
+        }
+    }
+
+    private static ArrayList<String> commitResults(ArrayList<CompletableFuture<NodeResult>> results,
+                                      CompileStatistics statistics, long startTime) {
+        ArrayList<String> errors = new ArrayList<>();
+
+        for (CompletableFuture<NodeResult> future : results) {
+            NodeResult result = future.join();
+            GraphNode node = result.node();
+            statistics.addMemoCounts(result.memoHits(), result.memoMisses());
+            if (result.cacheHit()) statistics.cacheHit();
+            else statistics.cacheMiss();
+
+            if (result.error() != null) {
+                errors.add("node " + node.getName() + " : " + result.error());
+                statistics.nodeFailed();
+            } else if (result.parseResult().syntaxNode().isPresent()) {
+                // the code may have been edited while it was being parsed, then this AST is already outdated
+                if (node.getCodeString().equals(result.code())) {
+                    ASTNode astExpr = result.parseResult().syntaxNode().get();
+                    // resolving needs the imports of the node, which may only be looked at from this thread
+                    astExpr.resolve(new Scope(node));
                     node.setAstExpr(astExpr);
+                    node.setEncodedAst(result.encodedAst());
                     node.setCompiled();
-                } else {
-                    errors.add("node " + node.getName() + " : " + res.optionalErrMsg());
                 }
-
-            } catch (ParseError parseError) {
-                errors.add("node " + node.getName() + " : " + parseError.toString());
+                statistics.nodeParsed();
+            } else {
+                errors.add("node " + node.getName() + " : " + result.parseResult().optionalErrMsg());
+                statistics.nodeFailed();
             }
         }
 
-        if (errors.size() == 0) {
-            // show popup saying the compilation was successful
-        } else {
-            // show popup with errors
-            new CompileErrorPopup(errors);
-        }
+        statistics.setCompileTimeNanos(System.nanoTime() - startTime);
+        lastStatistics = statistics;
+        return errors;
+    }
+
+    /**
+     * @return a hash identifying both the code (ignoring whitespace) and the way its syntax tree gets encoded,
+     * which tells whether an encoded syntax tree stored somewhere still belongs to that code
+     */
+    public static String sourceHash(String code) {
+        return AstTag.FORMAT_VERSION + ":" + CompileCache.contentHash(new Lexer(code).lexCode());
+    }
+
+    /**
+     * @return whether a syntax tree stored along with the given source hash can be used for the code as is,
+     * which it can't once either the code or the encoding (an older FORMAT_VERSION) changed
+     */
+    public static boolean isStoredAstUsable(String storedSourceHash, String code) {
+        return storedSourceHash != null && storedSourceHash.equals(sourceHash(code));
+    }
+
+    public static void setPackratParsing(boolean enabled) {
+        packratParsing = enabled;
+    }
+
+    public static boolean isPackratParsing() {
+        return packratParsing;
+    }
 
+    public static CompileStatistics getLastStatistics() {
+        return lastStatistics;
     }
 
 
@@ -0,0 +1,126 @@
+package com.example.kernlang.compiler.cache;
+
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.expressions.*;
+import com.example.kernlang.compiler.parser.expressions.literals.*;
+import com.example.kernlang.compiler.parser.language_extensions.ForLoop;
+import com.example.kernlang.compiler.parser.language_extensions.Quote;
+import com.example.kernlang.compiler.parser.statements.Assignment;
+import com.example.kernlang.compiler.parser.statements.ReturnStmt;
+import com.example.kernlang.compiler.parser.statements.Statement;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
+/**
+ * Builds a fresh syntax tree from the bytes an AstWriter produced.
+ * Decoding never shares nodes with an earlier decode of the same bytes,
+ * which matters since the interpreter keeps state in the syntax tree of a node.
+ */
+public class AstReader {
+    private final DataInputStream in;
+
+    public AstReader(byte[] bytes) {
+        this.in = new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    public static ASTNode decode(byte[] bytes) {
+        return new AstReader(bytes).readNode();
+    }
+
+    public ASTNode readNode() {
+        int tag = readTag();
+        return switch (tag) {
+            case AstTag.NULL -> null;
+            case AstTag.ADD_SUB -> AddSub.decode(this);
+            case AstTag.MUL_DIV -> MulDiv.decode(this);
+            case AstTag.COMPARISON -> Comparison.decode(this);
+            case AstTag.EQUALITY -> EqualityExpr.decode(this);
+            case AstTag.UNARY -> UnaryExpr.decode(this);
+            case AstTag.PAREN -> ParenExpr.decode(this);
+            case AstTag.IDENTIFIER -> IdentifierExpr.decode(this);
+            case AstTag.IF -> IfExpr.decode(this);
+            case AstTag.FUNCTION_CALL -> FunctionCall.decode(this);
+            case AstTag.RECORD_ACCESS -> RecordAccess.decode(this);
+            case AstTag.ARRAY_ACCESS -> ArrayAccess.decode(this);
+            case AstTag.NUMBER_LITERAL -> NumberLiteral.decode(this);
+            case AstTag.CHAR_LITERAL -> CharLiteral.decode(this);
+            case AstTag.BOOL_LITERAL -> BoolLiteral.decode(this);
+            case AstTag.UNIT_LITERAL -> new UnitLiteral();
+            case AstTag.ARRAY_LITERAL -> ArrayLiteral.decode(this);
+            case AstTag.RECORD_LITERAL -> RecordLiteral.decode(this);
+            case AstTag.FUNCTION_LITERAL -> FunctionLiteral.decode(this);
+            case AstTag.STATEMENT -> Statement.decode(this);
+            case AstTag.ASSIGNMENT -> Assignment.decode(this);
+            case AstTag.RETURN -> ReturnStmt.decode(this);
+            case AstTag.FOR_LOOP -> ForLoop.decode(this);
+            case AstTag.QUOTE -> Quote.decode(this);
+            default -> throw new IllegalArgumentException("unknown syntax node tag " + tag);
+        };
+    }
+
+    public ArrayList<ASTNode> readNodes() {
+        int size = readInt();
+        ArrayList<ASTNode> nodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) nodes.add(readNode());
+        return nodes;
+    }
+
+    public ArrayList<String> readStrings() {
+        int size = readInt();
+        ArrayList<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) strings.add(readString());
+        return strings;
+    }
+
+    public int readTag() {
+        try {
+            return in.readUnsignedByte();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int readInt() {
+        try {
+            return in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public double readDouble() {
+        try {
+            return in.readDouble();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public char readChar() {
+        try {
+            return in.readChar();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean readBoolean() {
+        try {
+            return in.readBoolean();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String readString() {
+        try {
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
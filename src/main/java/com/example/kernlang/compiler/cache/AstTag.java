@@ -0,0 +1,40 @@
+package com.example.kernlang.compiler.cache;
+
+/**
+ * Every kind of syntax node that can be encoded gets its own tag, which is written in front of its fields.
+ * Don't renumber these, encoded syntax trees may outlive a single run of the IDE.
+ */
+public final class AstTag {
+    // bump this whenever the encoding of some node changes, so encodings stored in older project files get ignored
+    public static final int FORMAT_VERSION = 3;
+
+    public static final int NULL = 0;
+
+    public static final int ADD_SUB = 1;
+    public static final int MUL_DIV = 2;
+    public static final int COMPARISON = 3;
+    public static final int EQUALITY = 4;
+    public static final int UNARY = 5;
+    public static final int PAREN = 6;
+    public static final int IDENTIFIER = 7;
+    public static final int IF = 8;
+    public static final int FUNCTION_CALL = 9;
+    public static final int RECORD_ACCESS = 10;
+    public static final int ARRAY_ACCESS = 11;
+
+    public static final int NUMBER_LITERAL = 12;
+    public static final int CHAR_LITERAL = 13;
+    public static final int BOOL_LITERAL = 14;
+    public static final int UNIT_LITERAL = 15;
+    public static final int ARRAY_LITERAL = 16;
+    public static final int RECORD_LITERAL = 17;
+    public static final int FUNCTION_LITERAL = 18;
+
+    public static final int STATEMENT = 19;
+    public static final int ASSIGNMENT = 20;
+    public static final int RETURN = 21;
+    public static final int FOR_LOOP = 22;
+    public static final int QUOTE = 23;
+
+    private AstTag() {}
+}
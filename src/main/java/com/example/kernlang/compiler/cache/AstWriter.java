@@ -0,0 +1,91 @@
+package com.example.kernlang.compiler.cache;
+
+import com.example.kernlang.compiler.parser.ASTNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Turns a syntax tree into a compact byte array, every node writes itself through ASTNode.encode().
+ * The AstReader builds a brand new tree from those bytes again.
+ */
+public class AstWriter {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    public static byte[] encode(ASTNode root) {
+        AstWriter writer = new AstWriter();
+        writer.writeNode(root);
+        return writer.toByteArray();
+    }
+
+    public void writeNode(ASTNode node) {
+        if (node == null) writeTag(AstTag.NULL);
+        else node.encode(this);
+    }
+
+    public void writeNodes(List<? extends ASTNode> nodes) {
+        writeInt(nodes.size());
+        for (ASTNode node : nodes) writeNode(node);
+    }
+
+    public void writeStrings(List<String> strings) {
+        writeInt(strings.size());
+        for (String s : strings) writeString(s);
+    }
+
+    public void writeTag(int tag) {
+        try {
+            out.writeByte(tag);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeInt(int value) {
+        try {
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeDouble(double value) {
+        try {
+            out.writeDouble(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeChar(char value) {
+        try {
+            out.writeChar(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeBoolean(boolean value) {
+        try {
+            out.writeBoolean(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeString(String value) {
+        try {
+            out.writeUTF(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.kernlang.compiler.cache;
+
+import com.example.kernlang.compiler.lexer.TokenStream;
+import com.example.kernlang.compiler.parser.ASTNode;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the syntax tree of code that was parsed before, keyed by a hash of its tokens.
+ * Since the hash only looks at the tokens, code that only differs in whitespace shares an entry.
+ * The trees are kept in their encoded form, and every hit gets decoded into a fresh tree,
+ * so nodes with the same code never end up sharing (and mutating) the same syntax nodes.
+ */
+public class CompileCache {
+    private static final int MAX_ENTRIES = 4096;
+
+    // in access order, so the least recently used entry is the first one to go when the cache is full
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * @return the encoded syntax tree cached for the given hash (AstReader makes a fresh tree out of it),
+     * or null if there is none
+     */
+    public synchronized byte[] lookup(String contentHash) {
+        return entries.get(contentHash);
+    }
+
+    /**
+     * @return the encoded form of the syntax tree, as it was stored in the cache
+     */
+    public byte[] store(String contentHash, ASTNode ast) {
+        byte[] encoded = AstWriter.encode(ast);
+        synchronized (this) {
+            entries.put(contentHash, encoded);
+        }
+        return encoded;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return a hex SHA-256 hash of the kinds and texts of all tokens, so whitespace doesn't count
+     */
+    public static String contentHash(TokenStream tokens) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        for (int i = 0; i < tokens.size(); i++) {
+            digest.update((byte) tokens.kind(i));
+            byte[] text = tokens.text(i).getBytes(StandardCharsets.UTF_8);
+            digest.update(ByteBuffer.allocate(4).putInt(text.length).array());
+            digest.update(text);
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+}
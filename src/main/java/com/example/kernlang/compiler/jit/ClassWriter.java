@@ -0,0 +1,159 @@
+package com.example.kernlang.compiler.jit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Writes just enough of the JVM class file format for the classes the JvmCompiler generates:
+ * a constant pool, static fields and static methods.
+ * Classes are written in the Java 5 format, which the JVM still verifies without stack map frames,
+ * so the code of a method is nothing more than its instructions.
+ */
+class ClassWriter {
+    private static final int CLASS_FILE_VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private final Bytes pool = new Bytes();
+    private final HashMap<String, Integer> poolIndices = new HashMap<>();
+    private int poolCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+
+    private final Bytes fields = new Bytes();
+    private int fieldCount = 0;
+    private final Bytes methods = new Bytes();
+    private int methodCount = 0;
+
+    ClassWriter(String internalName) {
+        thisClass = classRef(internalName);
+        superClass = classRef("java/lang/Object");
+    }
+
+    int utf8(String text) {
+        Integer index = poolIndices.get("utf8 " + text);
+        if (index != null) return index;
+        // the names and descriptors written here are all plain ascii, where modified utf-8 is just utf-8
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        pool.u1(1).u2(bytes.length).bytes(bytes);
+        return newEntry("utf8 " + text, 1);
+    }
+
+    int classRef(String internalName) {
+        return reference("class " + internalName, 7, utf8(internalName), -1);
+    }
+
+    int string(String text) {
+        return reference("string " + text, 8, utf8(text), -1);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return reference("field " + owner + "." + name + descriptor, 9, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return reference("method " + owner + "." + name + descriptor, 10, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    int doubleConstant(double number) {
+        long bits = Double.doubleToRawLongBits(number);
+        Integer index = poolIndices.get("double " + bits);
+        if (index != null) return index;
+        pool.u1(6).u4((int) (bits >>> 32)).u4((int) bits);
+        // doubles take up two entries of the pool
+        return newEntry("double " + bits, 2);
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return reference("nameandtype " + name + descriptor, 12, utf8(name), utf8(descriptor));
+    }
+
+    private int reference(String key, int tag, int first, int second) {
+        Integer index = poolIndices.get(key);
+        if (index != null) return index;
+        pool.u1(tag).u2(first);
+        if (second >= 0) pool.u2(second);
+        return newEntry(key, 1);
+    }
+
+    private int newEntry(String key, int size) {
+        int index = poolCount;
+        poolIndices.put(key, index);
+        poolCount += size;
+        return index;
+    }
+
+    void addField(int access, String name, String descriptor) {
+        fields.u2(access).u2(utf8(name)).u2(utf8(descriptor)).u2(0);
+        fieldCount++;
+    }
+
+    void addMethod(int access, String name, String descriptor, Bytes code, int maxStack, int maxLocals) {
+        methods.u2(access).u2(utf8(name)).u2(utf8(descriptor));
+        // the only attribute is the code itself, without exception handlers
+        methods.u2(1).u2(utf8("Code")).u4(12 + code.size());
+        methods.u2(maxStack).u2(maxLocals).u4(code.size()).bytes(code.toByteArray());
+        methods.u2(0).u2(0);
+        methodCount++;
+    }
+
+    byte[] toByteArray() {
+        Bytes out = new Bytes();
+        out.u4(0xCAFEBABE).u2(0).u2(CLASS_FILE_VERSION);
+        out.u2(poolCount).bytes(pool.toByteArray());
+        out.u2(ACC_FINAL | ACC_SUPER).u2(thisClass).u2(superClass).u2(0);
+        out.u2(fieldCount).bytes(fields.toByteArray());
+        out.u2(methodCount).bytes(methods.toByteArray());
+        out.u2(0);
+        return out.toByteArray();
+    }
+
+    /**
+     * a growing array of big-endian bytes, which is what everything in a class file is made of
+     */
+    static class Bytes {
+        private byte[] bytes = new byte[64];
+        private int size = 0;
+
+        Bytes u1(int value) {
+            if (size == bytes.length) bytes = Arrays.copyOf(bytes, size * 2);
+            bytes[size++] = (byte) value;
+            return this;
+        }
+
+        Bytes u2(int value) {
+            return u1(value >>> 8).u1(value);
+        }
+
+        Bytes u4(int value) {
+            return u2(value >>> 16).u2(value);
+        }
+
+        Bytes bytes(byte[] values) {
+            for (byte value : values) u1(value);
+            return this;
+        }
+
+        /**
+         * overwrites two bytes that were written earlier, for jumps whose target wasn't known yet
+         */
+        void patchU2(int position, int value) {
+            bytes[position] = (byte) (value >>> 8);
+            bytes[position + 1] = (byte) value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
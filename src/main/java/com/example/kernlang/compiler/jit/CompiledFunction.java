@@ -0,0 +1,80 @@
+package com.example.kernlang.compiler.jit;
+
+import com.example.kernlang.compiler.runtime.Frame;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.SwitchPoint;
+
+/**
+ * A function compiled by the JvmCompiler, which takes its parameters as doubles.
+ */
+public class CompiledFunction {
+    private static final MethodHandle GET_NUMBER;
+
+    static {
+        try {
+            GET_NUMBER = MethodHandles.lookup().findVirtual(Frame.class, "getNumber",
+                    MethodType.methodType(double.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final MethodHandle target;
+    // the same, but taking the parameters from a frame
+    private final MethodHandle frameEntry;
+    private final boolean[] usedParams;
+    private final SwitchPoint[] assumptions;
+
+    CompiledFunction(MethodHandle target, boolean[] usedParams, SwitchPoint[] assumptions) {
+        this.target = target;
+        this.usedParams = usedParams;
+        this.assumptions = assumptions;
+
+        // parameters that aren't used could hold anything, so those are never read from the frame
+        MethodHandle[] getters = new MethodHandle[usedParams.length];
+        for (int i = 0; i < usedParams.length; i++) {
+            if (usedParams[i]) getters[i] = MethodHandles.insertArguments(GET_NUMBER, 1, i);
+            else getters[i] = MethodHandles.dropArguments(MethodHandles.constant(double.class, 0.0), 0, Frame.class);
+        }
+        this.frameEntry = MethodHandles.permuteArguments(MethodHandles.filterArguments(target, 0, getters),
+                MethodType.methodType(double.class, Frame.class), new int[usedParams.length]);
+    }
+
+    MethodHandle getTarget() {
+        return target;
+    }
+
+    /**
+     * @return false once any of the imports the function was compiled against got reassigned
+     */
+    boolean isValid() {
+        for (SwitchPoint assumption : assumptions) {
+            if (assumption.hasBeenInvalidated()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether all parameters the compiled code uses hold numbers,
+     * for anything else the function has to be interpreted (which then fails in the same way as before)
+     */
+    boolean accepts(Frame frame) {
+        for (int i = 0; i < usedParams.length; i++) {
+            if (usedParams[i] && !frame.isNumber(i)) return false;
+        }
+        return true;
+    }
+
+    public double call(Frame frame) {
+        try {
+            return (double) frameEntry.invokeExact(frame);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.kernlang.compiler.jit;
+
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+import com.example.kernlang.compiler.runtime.Frame;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+/**
+ * Keeps track of how hot a single function is, and holds its compiled code once it has been compiled.
+ * When an import the compiled code was bound to gets reassigned, the function goes back to being interpreted
+ * until it has been called often enough to get compiled again.
+ */
+public class JitState {
+    private static final MethodHandle INTERPRET;
+
+    static {
+        try {
+            INTERPRET = MethodHandles.lookup().findStatic(JitState.class, "interpret",
+                    MethodType.methodType(double.class, FunctionLiteral.class, double[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final FunctionLiteral function;
+    private int calls = 0;
+    private volatile CompiledFunction compiled = null;
+
+    // what compiled callers of this function invoke, which is the compiled code if there is any
+    private MutableCallSite entry = null;
+
+    public JitState(FunctionLiteral function) {
+        this.function = function;
+    }
+
+    /**
+     * counts a call of the function, which gets compiled once it's hot
+     * @return the compiled code to run this call with, or null if the call has to be interpreted
+     */
+    public CompiledFunction enter(Frame frame) {
+        if (!JvmCompiler.isEnabled()) return null;
+
+        CompiledFunction compiled = this.compiled;
+        if (compiled != null) {
+            if (compiled.isValid()) return compiled.accepts(frame) ? compiled : null;
+            deoptimize(compiled);
+        }
+        if (++calls == JvmCompiler.CALL_THRESHOLD) compile();
+        return null;
+    }
+
+    private synchronized void compile() {
+        CompiledFunction compiled = JvmCompiler.compile(function);
+        if (compiled == null) return;
+        this.compiled = compiled;
+        getEntry().setTarget(compiled.getTarget());
+    }
+
+    private synchronized void deoptimize(CompiledFunction outdated) {
+        if (compiled != outdated) return;
+        compiled = null;
+        calls = 0;
+        getEntry().setTarget(interpreted());
+    }
+
+    /**
+     * @return a method handle taking the arguments as doubles, which keeps calling whatever code
+     * this function currently has
+     */
+    synchronized MethodHandle entryInvoker() {
+        return getEntry().dynamicInvoker();
+    }
+
+    private MutableCallSite getEntry() {
+        if (entry == null) entry = new MutableCallSite(compiled != null ? compiled.getTarget() : interpreted());
+        return entry;
+    }
+
+    private MethodHandle interpreted() {
+        return INTERPRET.bindTo(function).asCollector(double[].class, function.getParamIdentifiers().size());
+    }
+
+    static double interpret(FunctionLiteral function, double[] args) {
+        Frame frame = new Frame(function, function.getFrameSize());
+        for (int i = 0; i < args.length; i++) frame.setNumber(i, args[i]);
+        return function.callNumber(frame);
+    }
+}
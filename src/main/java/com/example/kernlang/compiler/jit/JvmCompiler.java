@@ -0,0 +1,361 @@
+package com.example.kernlang.compiler.jit;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.expressions.*;
+import com.example.kernlang.compiler.parser.expressions.literals.BoolLiteral;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
+import com.example.kernlang.compiler.parser.statements.ReturnStmt;
+import com.example.kernlang.compiler.runtime.Builtin;
+import com.example.kernlang.compiler.runtime.Builtins;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.SwitchPoint;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Compiles hot functions to a class of JVM bytecode, so the JVM's own JIT can inline and unbox across them.
+ * Only functions that just return some arithmetic on their parameters can be compiled (which includes calling
+ * other such functions), a function using anything else keeps being interpreted.
+ *
+ * A call to an imported function gets bound to the function literal the import holds at compile time.
+ * That binding is guarded by the SwitchPoints of the nodes involved, so once an import gets reassigned
+ * the JVM throws away whatever it inlined and the call goes through the interpreter again.
+ */
+public class JvmCompiler {
+    // how often a function gets called before it's compiled
+    public static final int CALL_THRESHOLD = 1000;
+
+    // parameters take up two local variable slots each, which only go up to 255 for the short instructions
+    private static final int MAX_PARAMETERS = 127;
+
+    private static volatile boolean enabled = true;
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    // the generated classes are hidden classes, their name only has to be in this package
+    private static final String CLASS_NAME = "com/example/kernlang/compiler/jit/KernFunction";
+    private static final String METHOD_HANDLE = "java/lang/invoke/MethodHandle";
+
+    private static final MethodHandle SLOW_CALL;
+
+    static {
+        try {
+            SLOW_CALL = lookup.findStatic(JvmCompiler.class, "slowCall",
+                    MethodType.methodType(double.class, FunctionCall.class, GraphNode.class, double[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * thrown at the first thing in a function that can't be compiled
+     */
+    private static class NotCompilable extends RuntimeException {
+        NotCompilable() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final FunctionLiteral function;
+    private final GraphNode context;
+
+    private final ClassWriter writer = new ClassWriter(CLASS_NAME);
+    private final ClassWriter.Bytes code = new ClassWriter.Bytes();
+    private int stack = 0, maxStack = 0;
+
+    private final boolean[] usedParams;
+    private final ArrayList<MethodHandle> callSites = new ArrayList<>();
+    private final ArrayList<SwitchPoint> assumptions = new ArrayList<>();
+
+    private JvmCompiler(FunctionLiteral function) {
+        this.function = function;
+        this.context = function.getFunctionContext();
+        this.usedParams = new boolean[function.getParamIdentifiers().size()];
+    }
+
+    public static void setEnabled(boolean enabled) {
+        JvmCompiler.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the compiled function, or null if it can't be compiled
+     */
+    static CompiledFunction compile(FunctionLiteral function) {
+        if (function.getFunctionContext() == null || function.getParamIdentifiers().size() > MAX_PARAMETERS
+                || function.getStatements().isEmpty()
+                || !(function.getStatements().get(0).getStatement() instanceof ReturnStmt returnStmt))
+            return null;
+
+        try {
+            return new JvmCompiler(function).compileBody(returnStmt.getReturnExpr());
+        } catch (NotCompilable e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            System.out.println("failed to load the compiled function: " + e);
+            return null;
+        }
+    }
+
+    private CompiledFunction compileBody(ASTNode returnExpr) throws ReflectiveOperationException {
+        number(returnExpr);
+        op(0xaf, -2); // dreturn
+
+        String descriptor = "(" + "D".repeat(usedParams.length) + ")D";
+        writer.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "call", descriptor,
+                code, maxStack, usedParams.length * 2);
+        if (!callSites.isEmpty()) addCallSiteFields();
+
+        MethodHandles.Lookup hiddenClass = lookup.defineHiddenClassWithClassData(writer.toByteArray(),
+                callSites.toArray(new MethodHandle[0]), true);
+        MethodHandle target = hiddenClass.findStatic(hiddenClass.lookupClass(), "call",
+                MethodType.methodType(double.class, Collections.nCopies(usedParams.length, double.class)));
+        return new CompiledFunction(target, usedParams, assumptions.toArray(new SwitchPoint[0]));
+    }
+
+    /**
+     * emits the code that pushes the number the node evaluates to
+     */
+    private void number(ASTNode node) {
+        if (node instanceof NumberLiteral literal) {
+            constant(literal.getNumber());
+        } else if (node instanceof NumberValue value) {
+            constant(value.getNumber());
+        } else if (node instanceof AddSub addSub) {
+            number(addSub.getLeft());
+            number(addSub.getRight());
+            op(addSub.getOperator() == '+' ? 0x63 : 0x67, -2); // dadd, dsub
+        } else if (node instanceof MulDiv mulDiv) {
+            number(mulDiv.getLeft());
+            number(mulDiv.getRight());
+            op(mulDiv.getOperator() == '*' ? 0x6b : 0x6f, -2); // dmul, ddiv
+        } else if (node instanceof UnaryExpr unary && unary.getOperator() == '-') {
+            number(unary.getExpr());
+            op(0x77, 0); // dneg
+        } else if (node instanceof ParenExpr paren) {
+            number(paren.getExpr());
+        } else if (node instanceof IfExpr ifExpr) {
+            condition(ifExpr.condition);
+            int toFalseCase = jump(0x99); // ifeq
+            number(ifExpr.trueCaseExpr);
+            int toEnd = jump(0xa7); // goto
+            // only one of the cases runs, the other one starts out from the same stack
+            stack -= 2;
+            land(toFalseCase);
+            number(ifExpr.falseCaseExpr);
+            land(toEnd);
+        } else if (node instanceof IdentifierExpr identifier && identifier.getResolvedFunction() == function
+                && identifier.getSlot() >= 0) {
+            usedParams[identifier.getSlot()] = true;
+            code.u1(0x18).u1(identifier.getSlot() * 2); // dload
+            adjustStack(2);
+        } else if (node instanceof FunctionCall call) {
+            call(call);
+        } else {
+            throw new NotCompilable();
+        }
+    }
+
+    /**
+     * emits the code that pushes 1 if the condition holds and 0 if it doesn't
+     */
+    private void condition(ASTNode node) {
+        if (node instanceof Comparison comparison) {
+            number(comparison.getLeft());
+            number(comparison.getRight());
+            // a comparison with NaN is false either way
+            if (comparison.getOperator() == '>') {
+                op(0x97, -3); // dcmpl
+                bool(0x9d); // ifgt
+            } else {
+                op(0x98, -3); // dcmpg
+                bool(0x9b); // iflt
+            }
+        } else if (node instanceof EqualityExpr equality) {
+            // numbers are equal when their bits are, just like NumberValue.equals
+            number(equality.getLeft());
+            invokeStatic("java/lang/Double", "doubleToLongBits", "(D)J", 0);
+            number(equality.getRight());
+            invokeStatic("java/lang/Double", "doubleToLongBits", "(D)J", 0);
+            op(0x94, -3); // lcmp
+            bool(equality.getOperator().equals("==") ? 0x99 : 0x9a); // ifeq, ifne
+        } else if (node instanceof BoolLiteral literal) {
+            op(literal.getLiteral() ? 0x04 : 0x03, 1); // iconst_1, iconst_0
+        } else if (node instanceof ParenExpr paren) {
+            condition(paren.getExpr());
+        } else if (node instanceof IfExpr ifExpr) {
+            condition(ifExpr.condition);
+            int toFalseCase = jump(0x99); // ifeq
+            condition(ifExpr.trueCaseExpr);
+            int toEnd = jump(0xa7); // goto
+            stack -= 1;
+            land(toFalseCase);
+            condition(ifExpr.falseCaseExpr);
+            land(toEnd);
+        } else {
+            throw new NotCompilable();
+        }
+    }
+
+    /**
+     * turns the int on the stack into 1 or 0, depending on whether the given jump would be taken
+     */
+    private void bool(int jumpOpcode) {
+        int toTrue = jump(jumpOpcode);
+        op(0x03, 1); // iconst_0
+        int toEnd = jump(0xa7); // goto
+        stack -= 1;
+        land(toTrue);
+        op(0x04, 1); // iconst_1
+        land(toEnd);
+    }
+
+    private void call(FunctionCall call) {
+        ArrayList<ASTNode> args = call.getArgs();
+        Builtin builtin = call.getBuiltin(context);
+        if (builtin == Builtins.MOD) {
+            if (args.size() != 2) throw new NotCompilable();
+            // an import added to this function's node could shadow the builtin
+            assumptions.add(context.getJitAssumptions());
+            number(args.get(0));
+            op(0x8e, -1); // d2i
+            number(args.get(1));
+            op(0x8e, -1); // d2i
+            op(0x70, -1); // irem
+            op(0x87, 1); // i2d
+            return;
+        }
+
+        // only calls to functions held by an import are bound, a parameter could hold any function
+        if (builtin != null || !(call.getFunctionExpr() instanceof IdentifierExpr identifier)
+                || function.getParamIdentifiers().contains(identifier.getIdentifier()))
+            throw new NotCompilable();
+        GraphNode importNode = identifier.findImport(context);
+        if (importNode == null || !(importNode.getAST() instanceof FunctionLiteral callee)
+                || callee.getParamIdentifiers().size() != args.size())
+            throw new NotCompilable();
+        // the same as what interpreting the identifier would do, which gives the callee its context
+        callee.interpret(importNode, Frame.EMPTY);
+
+        int callSite = callSites.size();
+        callSites.add(bind(call, importNode, callee));
+        getStatic("callSite" + callSite);
+        for (ASTNode arg : args) number(arg);
+        code.u1(0xb6).u2(writer.methodRef(METHOD_HANDLE, "invokeExact", "(" + "D".repeat(args.size()) + ")D"));
+        adjustStack(-1 - args.size() * 2 + 2);
+    }
+
+    /**
+     * @return the method handle a call site invokes, which calls the callee directly as long as neither
+     * the imports of this function's node nor the syntax tree of the imported node change
+     */
+    private MethodHandle bind(FunctionCall call, GraphNode importNode, FunctionLiteral callee) {
+        MethodHandle slowCall = MethodHandles.insertArguments(SLOW_CALL, 0, call, context)
+                .asCollector(double[].class, call.getArgs().size());
+        MethodHandle target = callee.getJitState().entryInvoker();
+
+        SwitchPoint importChanged = importNode.getJitAssumptions();
+        SwitchPoint importsChanged = context.getJitAssumptions();
+        assumptions.add(importChanged);
+        assumptions.add(importsChanged);
+        return importsChanged.guardWithTest(importChanged.guardWithTest(target, slowCall), slowCall);
+    }
+
+    /**
+     * what a call site does once its binding is no longer valid, which is what the interpreter does
+     */
+    private static double slowCall(FunctionCall call, GraphNode context, double[] args) {
+        FunctionLiteral callee = (FunctionLiteral) call.getFunctionExpr().interpret(context, Frame.EMPTY);
+        return JitState.interpret(callee, args);
+    }
+
+    /**
+     * the method handles of the call sites are passed to the class as its class data,
+     * from which the static initializer puts them in static final fields (that the JVM treats as constants)
+     */
+    private void addCallSiteFields() {
+        ClassWriter.Bytes init = new ClassWriter.Bytes();
+        init.u1(0xb8).u2(writer.methodRef("java/lang/invoke/MethodHandles", "lookup",
+                "()Ljava/lang/invoke/MethodHandles$Lookup;"));
+        ldc(init, writer.string("_"));
+        ldc(init, writer.classRef("[Ljava/lang/invoke/MethodHandle;"));
+        init.u1(0xb8).u2(writer.methodRef("java/lang/invoke/MethodHandles", "classData",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;"));
+        init.u1(0xc0).u2(writer.classRef("[Ljava/lang/invoke/MethodHandle;")); // checkcast
+        init.u1(0x4b); // astore_0
+
+        for (int i = 0; i < callSites.size(); i++) {
+            writer.addField(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC | ClassWriter.ACC_FINAL,
+                    "callSite" + i, "L" + METHOD_HANDLE + ";");
+            init.u1(0x2a); // aload_0
+            if (i <= 5) init.u1(0x03 + i); // iconst_i
+            else init.u1(0x11).u2(i); // sipush
+            init.u1(0x32); // aaload
+            init.u1(0xb3).u2(writer.fieldRef(CLASS_NAME, "callSite" + i, "L" + METHOD_HANDLE + ";")); // putstatic
+        }
+        init.u1(0xb1); // return
+        writer.addMethod(ClassWriter.ACC_STATIC, "<clinit>", "()V", init, 3, 1);
+    }
+
+    private void constant(double number) {
+        if (Double.doubleToRawLongBits(number) == 0L) op(0x0e, 2); // dconst_0
+        else if (number == 1.0) op(0x0f, 2); // dconst_1
+        else {
+            code.u1(0x14).u2(writer.doubleConstant(number)); // ldc2_w
+            adjustStack(2);
+        }
+    }
+
+    private void getStatic(String field) {
+        code.u1(0xb2).u2(writer.fieldRef(CLASS_NAME, field, "L" + METHOD_HANDLE + ";"));
+        adjustStack(1);
+    }
+
+    private void invokeStatic(String owner, String name, String descriptor, int stackChange) {
+        code.u1(0xb8).u2(writer.methodRef(owner, name, descriptor));
+        adjustStack(stackChange);
+    }
+
+    private static void ldc(ClassWriter.Bytes out, int index) {
+        if (index <= 0xff) out.u1(0x12).u1(index);
+        else out.u1(0x13).u2(index); // ldc_w
+    }
+
+    private void op(int opcode, int stackChange) {
+        code.u1(opcode);
+        adjustStack(stackChange);
+    }
+
+    /**
+     * @return where the jump is, for land() once its target is known
+     */
+    private int jump(int opcode) {
+        int position = code.size();
+        code.u1(opcode).u2(0);
+        // every conditional jump used here pops an int
+        if (opcode != 0xa7) adjustStack(-1);
+        return position;
+    }
+
+    /**
+     * makes the jump at the given position go to the code that gets emitted next
+     */
+    private void land(int jumpPosition) {
+        code.patchU2(jumpPosition + 1, code.size() - jumpPosition);
+    }
+
+    private void adjustStack(int change) {
+        stack += change;
+        maxStack = Math.max(maxStack, stack);
+    }
+}
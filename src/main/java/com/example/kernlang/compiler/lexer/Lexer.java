@@ -0,0 +1,155 @@
+package com.example.kernlang.compiler.lexer;
+
+import java.util.Arrays;
+
+/**
+ * Turns the code of a node into a TokenStream in a single pass.
+ * Characters are classified exactly once here, so when the parser backtracks it re-reads tokens
+ * instead of scanning the same characters over and over again.
+ * Characters that can't start any token become ERROR tokens, on which the parser simply fails.
+ */
+public class Lexer {
+    private final String code;
+
+    private int[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private int count = 0;
+
+    public Lexer(String code) {
+        this.code = code;
+        // most tokens are a couple of characters long, so this rarely has to grow
+        int capacity = Math.max(16, code.length() / 3);
+        kinds = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+    }
+
+    public TokenStream lexCode() {
+        int pos = 0;
+        int length = code.length();
+        while (pos < length) {
+            char c = code.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+                continue;
+            }
+
+            int start = pos;
+            int kind;
+            if (isAlpha(c)) {
+                pos++;
+                while (pos < length && (isAlpha(code.charAt(pos)) || isDigit(code.charAt(pos)))) pos++;
+                kind = TokenKind.IDENTIFIER;
+            } else if (isDigit(c)) {
+                while (pos < length && isDigit(code.charAt(pos))) pos++;
+                if (pos < length && code.charAt(pos) == '.') {
+                    pos++;
+                    while (pos < length && isDigit(code.charAt(pos))) pos++;
+                }
+                kind = TokenKind.NUMBER;
+            } else if (c == '\'') {
+                int end = charLiteralEnd(pos);
+                if (end == -1) {
+                    pos++;
+                    kind = TokenKind.ERROR;
+                } else {
+                    pos = end;
+                    kind = TokenKind.CHAR;
+                }
+            } else {
+                char next = pos + 1 < length ? code.charAt(pos + 1) : '\0';
+                pos++;
+                switch (c) {
+                    case '(' -> kind = TokenKind.LEFT_PAREN;
+                    case ')' -> kind = TokenKind.RIGHT_PAREN;
+                    case '{' -> kind = TokenKind.LEFT_BRACE;
+                    case '}' -> kind = TokenKind.RIGHT_BRACE;
+                    case '[' -> kind = TokenKind.LEFT_BRACKET;
+                    case ']' -> kind = TokenKind.RIGHT_BRACKET;
+                    case ',' -> kind = TokenKind.COMMA;
+                    case ':' -> kind = TokenKind.COLON;
+                    case '+' -> kind = TokenKind.PLUS;
+                    case '*' -> kind = TokenKind.STAR;
+                    case '/' -> kind = TokenKind.SLASH;
+                    case '>' -> kind = TokenKind.GREATER;
+                    case '\\' -> kind = TokenKind.BACKSLASH;
+                    case '%' -> kind = TokenKind.PERCENT;
+                    case '#' -> kind = TokenKind.HASH;
+                    case '&' -> kind = TokenKind.AMPERSAND;
+                    case '$' -> kind = TokenKind.DOLLAR;
+                    case '-' -> {
+                        if (next == '>') {
+                            pos++;
+                            kind = TokenKind.ARROW;
+                        } else kind = TokenKind.MINUS;
+                    }
+                    case '<' -> {
+                        if (next == '-') {
+                            pos++;
+                            kind = TokenKind.LEFT_ARROW;
+                        } else kind = TokenKind.LESS;
+                    }
+                    case '=' -> {
+                        if (next == '=') {
+                            pos++;
+                            kind = TokenKind.EQUAL_EQUAL;
+                        } else kind = TokenKind.EQUAL;
+                    }
+                    case '!' -> {
+                        if (next == '=') {
+                            pos++;
+                            kind = TokenKind.BANG_EQUAL;
+                        } else kind = TokenKind.BANG;
+                    }
+                    default -> kind = TokenKind.ERROR;
+                }
+            }
+            addToken(kind, start, pos);
+        }
+        addToken(TokenKind.EOF, length, length);
+        return new TokenStream(code, kinds, starts, ends, count);
+    }
+
+    /**
+     * @return the position right after the char literal starting at the given position,
+     * or -1 if there is no well-formed char literal there
+     */
+    private int charLiteralEnd(int position) {
+        int pos = position + 1;
+        if (pos >= code.length()) return -1;
+        if (code.charAt(pos) == '\\') {
+            if (pos + 1 >= code.length()) return -1;
+            char escaped = code.charAt(pos + 1);
+            if (escaped != 'n' && escaped != 't' && escaped != '\\') return -1;
+            pos += 2;
+        } else {
+            pos++;
+        }
+        if (pos < code.length() && code.charAt(pos) == '\'') return pos + 1;
+        return -1;
+    }
+
+    private void addToken(int kind, int start, int end) {
+        if (count == kinds.length) {
+            int capacity = kinds.length * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    public static boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') ||
+                (c >= 'A' && c <= 'Z') ||
+                c == '_';
+    }
+
+    public static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
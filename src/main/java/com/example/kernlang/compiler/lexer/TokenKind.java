@@ -0,0 +1,43 @@
+package com.example.kernlang.compiler.lexer;
+
+/**
+ * The kinds of tokens the Lexer produces.
+ * These are plain ints rather than an enum, so a TokenStream can store them in a compact int[].
+ */
+public final class TokenKind {
+    public static final int EOF = 0;
+    public static final int ERROR = 1;
+
+    public static final int IDENTIFIER = 2;
+    public static final int NUMBER = 3;
+    public static final int CHAR = 4;
+
+    public static final int LEFT_PAREN = 5;
+    public static final int RIGHT_PAREN = 6;
+    public static final int LEFT_BRACE = 7;
+    public static final int RIGHT_BRACE = 8;
+    public static final int LEFT_BRACKET = 9;
+    public static final int RIGHT_BRACKET = 10;
+
+    public static final int COMMA = 11;
+    public static final int COLON = 12;
+    public static final int PLUS = 13;
+    public static final int MINUS = 14;
+    public static final int STAR = 15;
+    public static final int SLASH = 16;
+    public static final int LESS = 17;
+    public static final int GREATER = 18;
+    public static final int EQUAL = 19;
+    public static final int EQUAL_EQUAL = 20;
+    public static final int BANG = 21;
+    public static final int BANG_EQUAL = 22;
+    public static final int ARROW = 23;         // ->
+    public static final int LEFT_ARROW = 24;    // <-
+    public static final int BACKSLASH = 25;
+    public static final int PERCENT = 26;
+    public static final int HASH = 27;
+    public static final int AMPERSAND = 28;
+    public static final int DOLLAR = 29;
+
+    private TokenKind() {}
+}
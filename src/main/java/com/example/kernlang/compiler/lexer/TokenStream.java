@@ -0,0 +1,61 @@
+package com.example.kernlang.compiler.lexer;
+
+/**
+ * The tokens of a piece of code, as produced by the Lexer.
+ * Token i has kind kinds[i] and spans the characters [starts[i], ends[i]) of the code,
+ * so no String is made for a token unless a parser explicitly asks for its text.
+ * The last token is always an EOF token, and asking for a token past the end also gives EOF.
+ */
+public class TokenStream {
+    private final String code;
+    private final int[] kinds;
+    private final int[] starts;
+    private final int[] ends;
+    private final int count;
+
+    public TokenStream(String code, int[] kinds, int[] starts, int[] ends, int count) {
+        this.code = code;
+        this.kinds = kinds;
+        this.starts = starts;
+        this.ends = ends;
+        this.count = count;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int kind(int index) {
+        if (index < 0 || index >= count) return TokenKind.EOF;
+        return kinds[index];
+    }
+
+    public int start(int index) {
+        if (index >= count) return code.length();
+        return starts[index];
+    }
+
+    public int end(int index) {
+        if (index >= count) return code.length();
+        return ends[index];
+    }
+
+    public int length(int index) {
+        return end(index) - start(index);
+    }
+
+    public String text(int index) {
+        return code.substring(start(index), end(index));
+    }
+
+    /**
+     * compares the text of a token to a string, without making a String of the token
+     */
+    public boolean textEquals(int index, String text) {
+        return length(index) == text.length() && code.startsWith(text, start(index));
+    }
+}
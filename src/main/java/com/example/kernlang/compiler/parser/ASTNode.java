@@ -1,9 +1,13 @@
 package com.example.kernlang.compiler.parser;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.expressions.Literal;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.BoolValue;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
 
-import java.util.HashMap;
 
 public interface ASTNode {
 
@@ -11,7 +15,33 @@ public interface ASTNode {
 
     public ASTNode deepcopy();
 
-    ParseResult parse(String input);
+    ParseResult parse(SourceBuffer source, int position);
 
-    ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext);
+    /**
+     * binds the identifiers in this node (and everything below it) to parameter slots or imported nodes,
+     * so interpreting doesn't have to look them up by name every time
+     */
+    void resolve(Scope scope);
+
+    ASTNode interpret(GraphNode contextNode, Frame frame);
+
+    /**
+     * evaluates an expression that results in a number, without boxing that number in a NumberValue.
+     * the arithmetic nodes override this, so a chain of them only allocates once its result leaves the chain
+     */
+    default double interpretNumber(GraphNode contextNode, Frame frame) {
+        return ((NumberValue) interpret(contextNode, frame)).getNumber();
+    }
+
+    /**
+     * same as interpretNumber, for conditions
+     */
+    default boolean interpretBool(GraphNode contextNode, Frame frame) {
+        return ((BoolValue) interpret(contextNode, frame)).getBool();
+    }
+
+    /**
+     * writes this node (and everything below it) so an AstReader can build a fresh copy of it later on
+     */
+    void encode(AstWriter out);
 }
@@ -0,0 +1,39 @@
+package com.example.kernlang.compiler.parser;
+
+import java.util.HashMap;
+
+/**
+ * Memo table for packrat parsing.
+ * It remembers the ParseResult (successful or not) of every rule that was tried at a given position,
+ * so when backtracking makes the parser try the same rule at the same position again,
+ * the earlier result is handed back instead of parsing that part of the code all over again.
+ */
+public class ParseMemo {
+    private final HashMap<Class<? extends ASTNode>, HashMap<Integer, ParseResult>> table = new HashMap<>();
+
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * @return the memoized result of the rule at the given position, or null if the rule wasn't tried there yet
+     */
+    public ParseResult lookup(Class<? extends ASTNode> rule, int position) {
+        HashMap<Integer, ParseResult> ruleResults = table.get(rule);
+        ParseResult result = ruleResults == null ? null : ruleResults.get(position);
+        if (result == null) misses++;
+        else hits++;
+        return result;
+    }
+
+    public void store(Class<? extends ASTNode> rule, int position, ParseResult result) {
+        table.computeIfAbsent(rule, r -> new HashMap<>()).put(position, result);
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+}
@@ -2,5 +2,8 @@ package com.example.kernlang.compiler.parser;
 
 import java.util.Optional;
 
-public record ParseResult(Optional<ASTNode> syntaxNode, String leftOverString, String optionalErrMsg) {
+/**
+ * @param position the cursor into the SourceBuffer right after the parsed syntax node
+ */
+public record ParseResult(Optional<ASTNode> syntaxNode, int position, String optionalErrMsg) {
 }
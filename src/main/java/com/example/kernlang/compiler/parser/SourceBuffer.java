@@ -0,0 +1,107 @@
+package com.example.kernlang.compiler.parser;
+
+import com.example.kernlang.compiler.lexer.Lexer;
+import com.example.kernlang.compiler.lexer.TokenKind;
+import com.example.kernlang.compiler.lexer.TokenStream;
+
+/**
+ * The tokens of a node, shared by every ASTNode taking part in parsing it.
+ * Parsers work with an integer cursor, which is the index of the next token to consume,
+ * so consuming input never allocates and backtracking simply means going back to an earlier index.
+ */
+public class SourceBuffer {
+    private final TokenStream tokens;
+
+    // only present when packrat parsing is enabled
+    private final ParseMemo memo;
+
+    public SourceBuffer(String code) {
+        this(new Lexer(code).lexCode(), null);
+    }
+
+    public SourceBuffer(TokenStream tokens, ParseMemo memo) {
+        this.tokens = tokens;
+        this.memo = memo;
+    }
+
+    public TokenStream getTokens() {
+        return tokens;
+    }
+
+    public ParseMemo getMemo() {
+        return memo;
+    }
+
+    public boolean isAtEnd(int position) {
+        return tokens.kind(position) == TokenKind.EOF;
+    }
+
+    public int kind(int position) {
+        return tokens.kind(position);
+    }
+
+    public boolean check(int position, int kind) {
+        return tokens.kind(position) == kind;
+    }
+
+    /**
+     * keywords aren't separate kinds of tokens, they are identifiers with a particular name
+     */
+    public boolean isKeyword(int position, String keyword) {
+        return tokens.kind(position) == TokenKind.IDENTIFIER && tokens.textEquals(position, keyword);
+    }
+
+    public String text(int position) {
+        return tokens.text(position);
+    }
+
+    /**
+     * @return the first character of the token, which is all there is to most operators
+     */
+    public char firstChar(int position) {
+        if (tokens.length(position) == 0) return '\0';
+        return tokens.getCode().charAt(tokens.start(position));
+    }
+
+    /**
+     * @return the value of the NUMBER token at the given position
+     */
+    public double numberValue(int position) {
+        String code = tokens.getCode();
+        int pos = tokens.start(position);
+        int end = tokens.end(position);
+        double number = 0.0;
+        while (pos < end && code.charAt(pos) != '.') {
+            number *= 10;
+            number += code.charAt(pos) - '0';
+            pos++;
+        }
+        if (pos < end) {
+            pos++;
+            int divider = 10;
+            double decimal;
+            while (pos < end) {
+                decimal = code.charAt(pos) - '0';
+                number += decimal / divider;
+                divider *= 10;
+                pos++;
+            }
+        }
+        return number;
+    }
+
+    /**
+     * @return the character denoted by the CHAR token at the given position, with escapes resolved
+     */
+    public char charValue(int position) {
+        String code = tokens.getCode();
+        int start = tokens.start(position);
+        char c = code.charAt(start + 1);
+        if (c != '\\') return c;
+        return switch (code.charAt(start + 2)) {
+            case 'n' -> '\n';
+            case 't' -> '\t';
+            default -> '\\';
+        };
+    }
+}
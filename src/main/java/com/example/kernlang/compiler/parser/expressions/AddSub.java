@@ -1,17 +1,44 @@
 package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class AddSub implements ASTNode {
     ASTNode left, right;
     char operator;
 
+    // operands that are literals get read from these instead of being evaluated every time
+    private boolean leftIsLiteral, rightIsLiteral;
+    private double leftLiteral, rightLiteral;
+
+    public AddSub() {}
+
+    public AddSub(ASTNode left, char operator, ASTNode right) {
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+
+        if (left instanceof NumberLiteral literal) {
+            leftIsLiteral = true;
+            leftLiteral = literal.getNumber();
+        }
+        if (right instanceof NumberLiteral literal) {
+            rightIsLiteral = true;
+            rightLiteral = literal.getNumber();
+        }
+    }
+
     @Override
     public String toString(String indent) {
         return "\n" + indent + "addsub:" +
@@ -39,34 +66,42 @@ public class AddSub implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        input = input.stripLeading();
-        ParseResult parseLeftResult = new Term().parse(input);
-        if (parseLeftResult.syntaxNode().isPresent()) {
-            left = parseLeftResult.syntaxNode().get();
-            String leftOverString1 = parseLeftResult.leftOverString().stripLeading();
-            if (leftOverString1.startsWith("+") || leftOverString1.startsWith("-")) {
-                operator = leftOverString1.charAt(0);
-                ParseResult parseRightResult = new ComparisonTerm().parse(leftOverString1.substring(1));
-                if (parseRightResult.syntaxNode().isPresent()) {
-                    right = parseRightResult.syntaxNode().get();
-                    return new ParseResult(Optional.of(this), parseRightResult.leftOverString(), "");
-                }
-            }
-        }
-        return new ParseResult(Optional.empty(), "", "parsing Addition or Subtraction failed");
+    public ParseResult parse(SourceBuffer source, int position) {
+        // additions and subtractions are parsed by BinaryExpr, which builds AddSub nodes through the OperatorTable
+        ParseResult result = new BinaryExpr(OperatorTable.ADDITIVE).parse(source, position);
+        if (result.syntaxNode().isPresent() && result.syntaxNode().get() instanceof AddSub) return result;
+        return new ParseResult(Optional.empty(), position, "parsing Addition or Subtraction failed");
+    }
 
+    @Override
+    public void resolve(Scope scope) {
+        left.resolve(scope);
+        right.resolve(scope);
     }
 
     @Override
-    public NumberLiteral interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        if (operator == '+')
-            return new NumberLiteral(
-                    ((NumberLiteral)left.interpret(contextNode, additionalContext)).getNumber() +
-                    ((NumberLiteral)right.interpret(contextNode, additionalContext)).getNumber());
-
-        return new NumberLiteral(
-                ((NumberLiteral)left.interpret(contextNode, additionalContext)).getNumber() -
-                        ((NumberLiteral)right.interpret(contextNode, additionalContext)).getNumber());
+    public NumberValue interpret(GraphNode contextNode, Frame frame) {
+        return new NumberValue(interpretNumber(contextNode, frame));
+    }
+
+    @Override
+    public double interpretNumber(GraphNode contextNode, Frame frame) {
+        double a = leftIsLiteral ? leftLiteral : left.interpretNumber(contextNode, frame);
+        double b = rightIsLiteral ? rightLiteral : right.interpretNumber(contextNode, frame);
+        return operator == '+' ? a + b : a - b;
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.ADD_SUB);
+        out.writeChar(operator);
+        out.writeNode(left);
+        out.writeNode(right);
+    }
+
+    public static AddSub decode(AstReader in) {
+        char operator = in.readChar();
+        ASTNode left = in.readNode();
+        return new AddSub(left, operator, in.readNode());
     }
 }
@@ -1,12 +1,17 @@
 package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.literals.ArrayLiteral;
-import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class ArrayAccess implements ASTNode {
@@ -20,50 +25,62 @@ public class ArrayAccess implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String originalInput = input;
-        input = input.stripLeading();
-
+    public ParseResult parse(SourceBuffer source, int position) {
         // parse the array expression of which an element is to be accessed
         ParseResult res;
-        if (input.startsWith("[")) res = new ArrayLiteral().parse(input);
-        else res = new IdentifierExpr().parse(input);
+        if (source.check(position, TokenKind.LEFT_BRACKET)) res = new ArrayLiteral().parse(source, position);
+        else res = new IdentifierExpr().parse(source, position);
 
+        int pos;
         if (res.syntaxNode().isPresent()) {
             arrayExpr = res.syntaxNode().get();
-            input = res.leftOverString().stripLeading();
-        } else return new ParseResult(Optional.empty(), originalInput, "failed to parse record access");
+            pos = res.position();
+        } else return new ParseResult(Optional.empty(), position, "failed to parse record access");
 
         // parse the indexing
-        if (input.startsWith("[")) {
-            input = input.substring(1).stripLeading();
-            res = new ComparisonTerm().parse(input);
+        if (source.check(pos, TokenKind.LEFT_BRACKET)) {
+            res = new BinaryExpr(OperatorTable.ADDITIVE).parse(source, pos + 1);
             if (res.syntaxNode().isPresent()) {
                 this.indexExpr = res.syntaxNode().get();
-                input = res.leftOverString().stripLeading();
-            } else return new ParseResult(Optional.empty(), originalInput, "failed to parse record access");
+                pos = res.position();
+            } else return new ParseResult(Optional.empty(), position, "failed to parse record access");
 
-            if (!input.startsWith("]")) return new ParseResult(Optional.empty(), originalInput, "failed to parse record access");
-            input = input.substring(1).stripLeading();
+            if (!source.check(pos, TokenKind.RIGHT_BRACKET)) return new ParseResult(Optional.empty(), position, "failed to parse record access");
 
-            return new ParseResult(Optional.of(this), input, "");
+            return new ParseResult(Optional.of(this), pos + 1, "");
 
         }
 
-        return new ParseResult(Optional.empty(), originalInput, "failed to parse record access");
+        return new ParseResult(Optional.empty(), position, "failed to parse record access");
+    }
+
+    @Override
+    public void resolve(Scope scope) {
+        arrayExpr.resolve(scope);
+        indexExpr.resolve(scope);
+    }
 
+    @Override
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
+        // elements written in the array literal itself haven't been evaluated yet
+        return ((ArrayLiteral) this.arrayExpr.interpret(contextNode, frame))
+                .getElement((int) this.indexExpr.interpretNumber(contextNode, frame))
+                .interpret(contextNode, frame);
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        return ((ArrayLiteral) this.arrayExpr.interpret(contextNode, additionalContext))
-                .getElement((NumberLiteral) this.indexExpr.interpret(contextNode, additionalContext));
+    public double interpretNumber(GraphNode contextNode, Frame frame) {
+        ArrayLiteral array = (ArrayLiteral) this.arrayExpr.interpret(contextNode, frame);
+        int idx = (int) this.indexExpr.interpretNumber(contextNode, frame);
+        // numbers stored unboxed are read without boxing them
+        if (array.holdsNumbers()) return array.getNumber(idx);
+        return array.getElement(idx).interpretNumber(contextNode, frame);
     }
 
-    public void assignValue(ASTNode value, GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        ArrayLiteral arrayLit = (ArrayLiteral) arrayExpr.interpret(contextNode, additionalContext);
+    public void assignValue(ASTNode value, GraphNode contextNode, Frame frame) {
+        ArrayLiteral arrayLit = (ArrayLiteral) arrayExpr.interpret(contextNode, frame);
 
-        arrayLit.setElement((NumberLiteral) this.indexExpr.interpret(contextNode, additionalContext), value);
+        arrayLit.setElement((int) this.indexExpr.interpretNumber(contextNode, frame), value);
     }
 
     @Override
@@ -71,4 +88,18 @@ public class ArrayAccess implements ASTNode {
         // why on earth would anyone make copies of unevaluated expressions
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.ARRAY_ACCESS);
+        out.writeNode(arrayExpr);
+        out.writeNode(indexExpr);
+    }
+
+    public static ArrayAccess decode(AstReader in) {
+        ArrayAccess access = new ArrayAccess();
+        access.arrayExpr = in.readNode();
+        access.indexExpr = in.readNode();
+        return access;
+    }
 }
@@ -0,0 +1,100 @@
+package com.example.kernlang.compiler.parser.expressions;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+
+import java.util.Optional;
+
+/**
+ * Parses operands and the binary operators between them with precedence climbing.
+ * Every operand is a Factor and gets parsed exactly once, the operators come from the OperatorTable.
+ * The syntax node this produces is the tree of operator nodes (AddSub, Comparison, ...) itself,
+ * or just the operand when no operator follows it.
+ */
+public class BinaryExpr implements ASTNode {
+    // operators binding looser than this are left for the caller
+    private final int minPrecedence;
+
+    public BinaryExpr() {
+        this(OperatorTable.EQUALITY);
+    }
+
+    public BinaryExpr(int minPrecedence) {
+        this.minPrecedence = minPrecedence;
+    }
+
+    @Override
+    public String toString(String indent) {
+        return "\n" + indent + "binary expression";
+    }
+
+    @Override
+    public ParseResult parse(SourceBuffer source, int position) {
+        return parseOperand(source, position, minPrecedence);
+    }
+
+    private ParseResult parseOperand(SourceBuffer source, int position, int minPrecedence) {
+        ParseResult leftResult = new Factor().parse(source, position);
+        if (leftResult.syntaxNode().isEmpty())
+            return new ParseResult(Optional.empty(), position, "expression failed to parse");
+        return parseOperators(source, leftResult.syntaxNode().get(), leftResult.position(), minPrecedence);
+    }
+
+    private ParseResult parseOperators(SourceBuffer source, ASTNode left, int pos, int minPrecedence) {
+        while (true) {
+            ParseResult rightResult;
+            String operatorText;
+            OperatorTable.BinaryOperator operator;
+            if (source.check(pos, TokenKind.LEFT_ARROW)) {
+                // the lexer makes one arrow out of '<-', which only means assignment in a statement,
+                // in an expression 'a<-b' is a < -b
+                operator = OperatorTable.lookup(TokenKind.LESS);
+                if (operator == null || operator.precedence() < minPrecedence) break;
+                ParseResult negatedResult = new Factor().parse(source, pos + 1);
+                if (negatedResult.syntaxNode().isEmpty()) break;
+                rightResult = parseOperators(source, new UnaryExpr('-', negatedResult.syntaxNode().get()),
+                        negatedResult.position(), operator.precedence() + 1);
+                operatorText = "<";
+            } else {
+                operator = OperatorTable.lookup(source.kind(pos));
+                if (operator == null || operator.precedence() < minPrecedence) break;
+                // the right operand only takes operators binding tighter, which makes equal precedence left-associative
+                rightResult = parseOperand(source, pos + 1, operator.precedence() + 1);
+                if (rightResult.syntaxNode().isEmpty()) break;
+                operatorText = source.text(pos);
+            }
+
+            left = operator.builder().build(left, operatorText, rightResult.syntaxNode().get());
+            pos = rightResult.position();
+        }
+        return new ParseResult(Optional.of(left), pos, "");
+    }
+
+    @Override
+    public void resolve(Scope scope) {
+        // never part of the syntax tree, so there is nothing to resolve
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
+        // never part of the syntax tree, parse() hands back the operator nodes themselves
+        return null;
+    }
+
+    @Override
+    public ASTNode deepcopy() {
+        // why on earth would anyone make copies of unevaluated expressions
+        return this;
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        throw new IllegalStateException("binary expressions are never part of a syntax tree");
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
-import com.example.kernlang.compiler.parser.expressions.literals.BoolLiteral;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.BoolValue;
+import com.example.kernlang.compiler.runtime.Frame;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class Comparison implements ASTNode {
@@ -14,6 +19,27 @@ public class Comparison implements ASTNode {
     ASTNode left, right;
     char operator;
 
+    // operands that are literals get read from these instead of being evaluated every time
+    private boolean leftIsLiteral, rightIsLiteral;
+    private double leftLiteral, rightLiteral;
+
+    public Comparison() {}
+
+    public Comparison(ASTNode left, char operator, ASTNode right) {
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+
+        if (left instanceof NumberLiteral literal) {
+            leftIsLiteral = true;
+            leftLiteral = literal.getNumber();
+        }
+        if (right instanceof NumberLiteral literal) {
+            rightIsLiteral = true;
+            rightLiteral = literal.getNumber();
+        }
+    }
+
     @Override
     public String toString(String indent) {
         return "\n" + indent + "comparison" +
@@ -22,36 +48,42 @@ public class Comparison implements ASTNode {
                 "\n" + right.toString(indent + "\t") ;
     }
 
+    public char getOperator() {
+        return operator;
+    }
+
+    public ASTNode getLeft() {
+        return left;
+    }
+
+    public ASTNode getRight() {
+        return right;
+    }
+
     @Override
-    public ParseResult parse(String input) {
-        input = input.stripLeading();
-        ParseResult parseLeftResult = new ComparisonTerm().parse(input);
-        if (parseLeftResult.syntaxNode().isPresent()) {
-            left = parseLeftResult.syntaxNode().get();
-            String leftOverString1 = parseLeftResult.leftOverString().stripLeading();
-            if (leftOverString1.startsWith("<") || leftOverString1.startsWith(">")) {
-                operator = leftOverString1.charAt(0);
-                ParseResult parseRightResult = new ComparisonTerm().parse(leftOverString1.substring(1));
-                if (parseRightResult.syntaxNode().isPresent()) {
-                    right = parseRightResult.syntaxNode().get();
-                    return new ParseResult(Optional.of(this), parseRightResult.leftOverString(), "");
-                }
-            }
-        }
-        return new ParseResult(Optional.empty(), "", "parsing not equals failed");
+    public ParseResult parse(SourceBuffer source, int position) {
+        // comparisons are parsed by BinaryExpr, which builds Comparison nodes through the OperatorTable
+        ParseResult result = new BinaryExpr(OperatorTable.COMPARISON).parse(source, position);
+        if (result.syntaxNode().isPresent() && result.syntaxNode().get() instanceof Comparison) return result;
+        return new ParseResult(Optional.empty(), position, "parsing not equals failed");
+    }
 
+    @Override
+    public void resolve(Scope scope) {
+        left.resolve(scope);
+        right.resolve(scope);
     }
 
     @Override
-    public BoolLiteral interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        if (operator == '>')
-            return new BoolLiteral(
-                    ((NumberLiteral)left.interpret(contextNode, additionalContext)).getNumber() >
-                            ((NumberLiteral)right.interpret(contextNode, additionalContext)).getNumber());
+    public BoolValue interpret(GraphNode contextNode, Frame frame) {
+        return BoolValue.of(interpretBool(contextNode, frame));
+    }
 
-        return new BoolLiteral(
-                ((NumberLiteral)left.interpret(contextNode, additionalContext)).getNumber() <
-                        ((NumberLiteral)right.interpret(contextNode, additionalContext)).getNumber());
+    @Override
+    public boolean interpretBool(GraphNode contextNode, Frame frame) {
+        double a = leftIsLiteral ? leftLiteral : left.interpretNumber(contextNode, frame);
+        double b = rightIsLiteral ? rightLiteral : right.interpretNumber(contextNode, frame);
+        return operator == '>' ? a > b : a < b;
     }
 
     @Override
@@ -59,4 +91,18 @@ public class Comparison implements ASTNode {
         // why on earth would anyone make copies of unevaluated expressions
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.COMPARISON);
+        out.writeChar(operator);
+        out.writeNode(left);
+        out.writeNode(right);
+    }
+
+    public static Comparison decode(AstReader in) {
+        char operator = in.readChar();
+        ASTNode left = in.readNode();
+        return new Comparison(left, operator, in.readNode());
+    }
 }
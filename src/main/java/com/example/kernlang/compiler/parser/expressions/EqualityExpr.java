@@ -1,17 +1,48 @@
 package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
-import com.example.kernlang.compiler.parser.expressions.literals.BoolLiteral;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.parser.expressions.literals.ArrayLiteral;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
+import com.example.kernlang.compiler.parser.expressions.literals.RecordLiteral;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.BoolValue;
+import com.example.kernlang.compiler.runtime.CharValue;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class EqualityExpr implements ASTNode {
     ASTNode left, right;
     String operator;
 
+    // how the operands get compared, which is decided by what they evaluated to the first time
+    private static final int UNINITIALIZED = 0;
+    // both operands are arithmetic, so they never have to be boxed
+    private static final int UNBOXED_NUMBERS = 1;
+    private static final int NUMBERS = 2;
+    private static final int CHARS = 3;
+    // records, arrays, functions and bools are only ever equal to themselves
+    private static final int IDENTITY = 4;
+    // operands of differing kinds, or ones that changed kind since, which use equals()
+    private static final int GENERIC = 5;
+    private int specialization = UNINITIALIZED;
+
+    public EqualityExpr() {}
+
+    public EqualityExpr(ASTNode left, String operator, ASTNode right) {
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+    }
+
     @Override
     public String toString(String indent) {
         return "\n" + indent + "equalityexpr:" +
@@ -20,35 +51,89 @@ public class EqualityExpr implements ASTNode {
                 "\n" + right.toString(indent + "\t") ;
     }
 
+    public String getOperator() {
+        return operator;
+    }
+
+    public ASTNode getLeft() {
+        return left;
+    }
+
+    public ASTNode getRight() {
+        return right;
+    }
+
     @Override
-    public ParseResult parse(String input) {
-        input = input.stripLeading();
-        ParseResult parseLeftResult = new BoolTerm().parse(input);
-        if (parseLeftResult.syntaxNode().isPresent()) {
-            left = parseLeftResult.syntaxNode().get();
-            String leftOverString1 = parseLeftResult.leftOverString().stripLeading();
-            if (leftOverString1.startsWith("==") || leftOverString1.startsWith("!=")) {
-                operator = leftOverString1.substring(0,2);
-                ParseResult parseRightResult = new BoolExpr().parse(leftOverString1.substring(2));
-                if (parseRightResult.syntaxNode().isPresent()) {
-                    right = parseRightResult.syntaxNode().get();
-                    return new ParseResult(Optional.of(this), parseRightResult.leftOverString(), "");
-                }
-
-            }
-        }
-        return new ParseResult(Optional.empty(), "", "parsing equals failed");
+    public ParseResult parse(SourceBuffer source, int position) {
+        // (in)equalities are parsed by BinaryExpr, which builds EqualityExpr nodes through the OperatorTable
+        ParseResult result = new BinaryExpr(OperatorTable.EQUALITY).parse(source, position);
+        if (result.syntaxNode().isPresent() && result.syntaxNode().get() instanceof EqualityExpr) return result;
+        return new ParseResult(Optional.empty(), position, "parsing equals failed");
+    }
+
+    @Override
+    public void resolve(Scope scope) {
+        left.resolve(scope);
+        right.resolve(scope);
+    }
+
+    @Override
+    public BoolValue interpret(GraphNode contextNode, Frame frame) {
+        return BoolValue.of(interpretBool(contextNode, frame));
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
+    public boolean interpretBool(GraphNode contextNode, Frame frame) {
+        if (operator.equals("==")) return isEqual(contextNode, frame);
+        return !isEqual(contextNode, frame);
+    }
+
+    private boolean isEqual(GraphNode contextNode, Frame frame) {
+        if (specialization == UNINITIALIZED && isArithmetic(left) && isArithmetic(right)) specialization = UNBOXED_NUMBERS;
+        if (specialization == UNBOXED_NUMBERS) {
+            // numbers are equal when their bits are, just like NumberValue.equals
+            return Double.doubleToLongBits(left.interpretNumber(contextNode, frame))
+                    == Double.doubleToLongBits(right.interpretNumber(contextNode, frame));
+        }
+
+        ASTNode a = left.interpret(contextNode, frame);
+        ASTNode b = right.interpret(contextNode, frame);
+        switch (specialization) {
+            case NUMBERS:
+                if (a instanceof NumberValue x && b instanceof NumberValue y)
+                    return Double.doubleToLongBits(x.getNumber()) == Double.doubleToLongBits(y.getNumber());
+                break;
+            case CHARS:
+                if (a instanceof CharValue x && b instanceof CharValue y) return x.getChar() == y.getChar();
+                break;
+            case IDENTITY:
+                if (hasIdentity(a) && hasIdentity(b)) return a == b;
+                break;
+            case GENERIC:
+                return a.equals(b);
+        }
+
+        // either the first time, or the operands aren't what they used to be, which isn't worth specializing for
+        specialization = specialization == UNINITIALIZED ? specializationOf(a, b) : GENERIC;
+        return a.equals(b);
+    }
 
-        if (operator.equals("=="))
-            return new BoolLiteral(left.interpret(contextNode, additionalContext)
-                .equals(right.interpret(contextNode, additionalContext)));
+    private static int specializationOf(ASTNode a, ASTNode b) {
+        if (a instanceof NumberValue && b instanceof NumberValue) return NUMBERS;
+        if (a instanceof CharValue && b instanceof CharValue) return CHARS;
+        if (hasIdentity(a) && hasIdentity(b)) return IDENTITY;
+        return GENERIC;
+    }
+
+    private static boolean hasIdentity(ASTNode value) {
+        // there only are two bool values, so those are the same object when they're equal
+        return value instanceof RecordLiteral || value instanceof ArrayLiteral || value instanceof FunctionLiteral
+                || value instanceof BoolValue;
+    }
 
-        return new BoolLiteral(!left.interpret(contextNode, additionalContext)
-                .equals(right.interpret(contextNode, additionalContext)));
+    private static boolean isArithmetic(ASTNode node) {
+        return node instanceof AddSub || node instanceof MulDiv || node instanceof NumberLiteral
+                || (node instanceof UnaryExpr unary && unary.getOperator() == '-');
     }
 
     @Override
@@ -56,4 +141,18 @@ public class EqualityExpr implements ASTNode {
         // why on earth would anyone make copies of unevaluated expressions
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.EQUALITY);
+        out.writeString(operator);
+        out.writeNode(left);
+        out.writeNode(right);
+    }
+
+    public static EqualityExpr decode(AstReader in) {
+        String operator = in.readString();
+        ASTNode left = in.readNode();
+        return new EqualityExpr(left, operator, in.readNode());
+    }
 }
@@ -9,7 +9,7 @@ public class Expr extends ExtendibleASTNode {
     public Expr() {
         super(
                 new ArrayList<>(Arrays.asList(
-                        BoolExpr::new,
+                        BinaryExpr::new,
                         Quote::new
                 )),
                 "expression failed to parse"
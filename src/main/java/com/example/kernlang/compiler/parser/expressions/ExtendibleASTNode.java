@@ -1,11 +1,15 @@
 package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.ParseMemo;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -31,15 +35,28 @@ public abstract class ExtendibleASTNode implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
+    public ParseResult parse(SourceBuffer source, int position) {
+        // with packrat parsing, every (rule, position) pair only ever gets parsed once
+        ParseMemo memo = source.getMemo();
+        if (memo != null) {
+            ParseResult memoized = memo.lookup(getClass(), position);
+            if (memoized != null) return memoized;
+        }
+
+        ParseResult result = parseClauses(source, position);
+        if (memo != null) memo.store(getClass(), position, result);
+        return result;
+    }
+
+    private ParseResult parseClauses(SourceBuffer source, int position) {
         for (Supplier<ASTNode> clause : clauses) {
-            ParseResult result = clause.get().parse(input);
+            ParseResult result = clause.get().parse(source, position);
             if (result.syntaxNode().isPresent()) {
                 return result;
             }
 
         }
-        return new ParseResult(Optional.empty(), input, parseErrorString);
+        return new ParseResult(Optional.empty(), position, parseErrorString);
     }
     @Override
     public ASTNode deepcopy() {
@@ -48,8 +65,19 @@ public abstract class ExtendibleASTNode implements ASTNode {
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
+    public void resolve(Scope scope) {
+        if (expr != null) expr.resolve(scope);
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
         // not even necessary because this will never be called from anywhere
-        return expr.interpret(contextNode, additionalContext);
+        return expr.interpret(contextNode, frame);
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        // the clause nodes are just a way of parsing, only the node they wrap ends up in the encoding
+        out.writeNode(expr);
     }
 }
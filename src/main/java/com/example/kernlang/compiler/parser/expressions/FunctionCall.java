@@ -1,16 +1,20 @@
 package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
-import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
-import com.example.kernlang.compiler.parser.expressions.literals.UnitLiteral;
-import com.example.kernlang.compiler.parser.statements.ReturnStmt;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
-import com.example.kernlang.compiler.parser.statements.Statement;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Builtin;
+import com.example.kernlang.compiler.runtime.Builtins;
+import com.example.kernlang.compiler.runtime.Frame;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Optional;
 
 public class FunctionCall implements ASTNode {
@@ -26,6 +30,14 @@ public class FunctionCall implements ASTNode {
     private ASTNode functionExpr;
     private final ArrayList<ASTNode> args = new ArrayList<>();
 
+    // filled in by resolve() when the function's name is that of a builtin and no parameter has that name
+    private Builtin builtin = null;
+
+    // whether the builtin is what gets called in a context node, an import with the same name shadows it,
+    // only valid as long as the imports of that context node don't change
+    private record BuiltinBinding(GraphNode context, int importsVersion, Builtin builtin) {}
+    private volatile BuiltinBinding builtinBinding = null;
+
     public void addArgument(ASTNode expr) {
         args.add(expr);
     }
@@ -38,40 +50,53 @@ public class FunctionCall implements ASTNode {
         return functionExpr;
     }
 
+    /**
+     * @return the builtin this call calls in the given context, or null if it calls a function literal
+     */
+    public Builtin getBuiltin(GraphNode context) {
+        if (builtin == null || context == null) return builtin;
+        BuiltinBinding binding = builtinBinding;
+        if (binding != null && binding.context() == context && binding.importsVersion() == context.getImportsVersion())
+            return binding.builtin();
+
+        // first call in this context, or its imports changed since the call was resolved
+        int importsVersion = context.getImportsVersion();
+        Builtin bound = ((IdentifierExpr) functionExpr).findImport(context) == null ? builtin : null;
+        builtinBinding = new BuiltinBinding(context, importsVersion, bound);
+        return bound;
+    }
+
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("%")) {
-            input2 = input2.substring(1).stripLeading();
-            ParseResult res = new Factor().parse(input2);
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.check(position, TokenKind.PERCENT)) {
+            ParseResult res = new Factor().parse(source, position + 1);
             if (res.syntaxNode().isPresent()) {
                 functionExpr = res.syntaxNode().get();
-                input2 = res.leftOverString().stripLeading();
-                if (input2.startsWith("(")) {
+                int pos = res.position();
+                if (source.check(pos, TokenKind.LEFT_PAREN)) {
                     // parse arguments
-                    input2 = input2.substring(1).stripLeading();
-                    if (input2.startsWith(")")) {
-                        return new ParseResult(Optional.of(this), input2.substring(1).stripLeading(), "");
+                    pos++;
+                    if (source.check(pos, TokenKind.RIGHT_PAREN)) {
+                        return new ParseResult(Optional.of(this), pos + 1, "");
                     }
-                    ParseResult parseArgResult = new Expr().parse(input2);
+                    ParseResult parseArgResult = new Expr().parse(source, pos);
                     if (parseArgResult.syntaxNode().isPresent()) {
                         addArgument(parseArgResult.syntaxNode().get());
-                        input2 = parseArgResult.leftOverString().stripLeading();
+                        pos = parseArgResult.position();
                     } else {
-                        return new ParseResult(Optional.empty(), input, "failed to parse function call");
+                        return new ParseResult(Optional.empty(), position, "failed to parse function call");
                     }
-                    while(input2.startsWith(",")) {
-                        input2 = input2.substring(1).stripLeading();
-                        parseArgResult = new Expr().parse(input2);
+                    while(source.check(pos, TokenKind.COMMA)) {
+                        parseArgResult = new Expr().parse(source, pos + 1);
                         if (parseArgResult.syntaxNode().isPresent()) {
                             addArgument(parseArgResult.syntaxNode().get());
-                            input2 = parseArgResult.leftOverString().stripLeading();
+                            pos = parseArgResult.position();
                         } else {
-                            return new ParseResult(Optional.empty(), input, "failed to parse function call");
+                            return new ParseResult(Optional.empty(), position, "failed to parse function call");
                         }
                     }
-                    if (input2.startsWith(")")) {
-                        return new ParseResult(Optional.of(this), input2.substring(1).stripLeading(), "");
+                    if (source.check(pos, TokenKind.RIGHT_PAREN)) {
+                        return new ParseResult(Optional.of(this), pos + 1, "");
                     }
                 }
 
@@ -79,55 +104,69 @@ public class FunctionCall implements ASTNode {
 
         }
 
-        return new ParseResult(Optional.empty(), input, "failed to parse function call");
+        return new ParseResult(Optional.empty(), position, "failed to parse function call");
+    }
+
+    @Override
+    public void resolve(Scope scope) {
+        builtin = null;
+        builtinBinding = null;
+        // parameters and imports get to shadow the builtins, an import added later is checked for when calling
+        if (functionExpr instanceof IdentifierExpr identifierExpr && scope.slotOf(identifierExpr.getIdentifier()) < 0) {
+            builtin = Builtins.lookup(identifierExpr.getIdentifier());
+            GraphNode context = scope.getContextNode();
+            if (builtin != null && context != null) {
+                int importsVersion = context.getImportsVersion();
+                Builtin bound = scope.importOf(identifierExpr.getIdentifier()) == null ? builtin : null;
+                builtinBinding = new BuiltinBinding(context, importsVersion, bound);
+            }
+        }
+        functionExpr.resolve(scope);
+        for (ASTNode arg : args) arg.resolve(scope);
     }
 
     /**
      *
      * @param contextNode: the function literal as a node
-     * @param additionalContext: the arguments passed for the function call
+     * @param frame: the arguments passed for the function call
      * @return
      */
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        // getting the actual function literal
-        FunctionLiteral fLit = null;
-        /*if (functionExpr instanceof FunctionLiteral) {
-            fLit = (FunctionLiteral) functionExpr;
-        } else {
-            // for instance, the functionExpr is actually a composition of functions, or an identifier of a function
-
-        }*/
-
-        if (functionExpr instanceof IdentifierExpr) {
-            if (((IdentifierExpr) functionExpr).getIdentifier().equals("mod")) {
-                NumberLiteral a = (NumberLiteral) args.get(0).interpret(contextNode, additionalContext);
-                NumberLiteral b = (NumberLiteral) args.get(1).interpret(contextNode, additionalContext);
-                int val = a.getNumber().intValue() % b.getNumber().intValue();
-                return new NumberLiteral(((Integer) val).doubleValue());
-            }
-        }
-        fLit = (FunctionLiteral) functionExpr.interpret(contextNode, additionalContext);
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
+        Builtin builtin = getBuiltin(contextNode);
+        if (builtin != null) return builtin.call(args, contextNode, frame);
+
+        FunctionLiteral fLit = callee(contextNode, frame);
+        return fLit.call(calleeFrame(fLit, contextNode, frame));
+    }
 
-        HashMap<String, ASTNode> argumentsHm = new HashMap<>();
-        // evaluating the args given with the function call
+    @Override
+    public double interpretNumber(GraphNode contextNode, Frame frame) {
+        Builtin builtin = getBuiltin(contextNode);
+        if (builtin != null) return builtin.callNumber(args, contextNode, frame);
+
+        FunctionLiteral fLit = callee(contextNode, frame);
+        return fLit.callNumber(calleeFrame(fLit, contextNode, frame));
+    }
+
+    /**
+     * @return the actual function literal that gets called
+     */
+    public FunctionLiteral callee(GraphNode contextNode, Frame frame) {
+        return (FunctionLiteral) functionExpr.interpret(contextNode, frame);
+    }
+
+    public Frame calleeFrame(FunctionLiteral fLit, GraphNode contextNode, Frame frame) {
+        Frame calleeFrame = new Frame(fLit, fLit.getFrameSize());
+        // evaluating the args given with the function call, every argument goes in the slot of its parameter
         for (int i = 0; i < args.size(); i++) {
-            String argName = fLit.getParamIdentifiers().get(i);
             // note: the arguments given with the function call, are to be evaluated in the caller's context
-            // no clue what additionalContext is doing here, might have to replace that with null
-            argumentsHm.put(argName, args.get(i).interpret(contextNode, additionalContext));
+            ASTNode arg = args.get(i);
+            // arithmetic always results in a number, which can then be passed without boxing it
+            if (arg instanceof AddSub || arg instanceof MulDiv) calleeFrame.setNumber(i, arg.interpretNumber(contextNode, frame));
+            else calleeFrame.set(i, arg.interpret(contextNode, frame));
         }
-
-        // statements
-        for (Statement stmt : fLit.getStatements()) {
-            if (stmt.getStatement() instanceof ReturnStmt) {
-                // note: the expressions in the function literal, are to be evaluated in that function's context
-                return stmt.interpret(fLit.getFunctionContext(), argumentsHm);
-            } else {
-                stmt.interpret(fLit.getFunctionContext(), argumentsHm);
-            }
-        }
-        return new UnitLiteral();
+        return calleeFrame;
     }
 
     @Override
@@ -135,4 +174,18 @@ public class FunctionCall implements ASTNode {
         // why on earth would anyone make copies of unevaluated expressions
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.FUNCTION_CALL);
+        out.writeNode(functionExpr);
+        out.writeNodes(args);
+    }
+
+    public static FunctionCall decode(AstReader in) {
+        FunctionCall call = new FunctionCall();
+        call.functionExpr = in.readNode();
+        call.args.addAll(in.readNodes());
+        return call;
+    }
 }
@@ -2,69 +2,117 @@ package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphEdge;
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class IdentifierExpr implements ASTNode {
     private String ident;
 
+    // filled in by resolve(): the function whose parameters were searched, and the slot of the parameter (or -1)
+    private FunctionLiteral resolvedFunction = null;
+    private int slot = -1;
+
+    // the import this identifier refers to, only valid as long as the imports of that context node don't change
+    private record ImportBinding(GraphNode context, int importsVersion, GraphNode importNode) {}
+    private volatile ImportBinding importBinding = null;
+
     @Override
     public String toString(String indent) {
         return "\n\t" + indent + "identifierexpr: " + ident;
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        String varName = "";
-        if (isAlpha(input2.charAt(0))) varName += input2.charAt(0);
-        else return new ParseResult(Optional.empty(), input, "failed to parse variable expression");
-
-        int i = 1;
-        while (i < input.length() && (isAlpha(input2.charAt(i)) || isDigit(input2.charAt(i)))) {
-            varName += input2.charAt(i);
-            i++;
-        }
+    public ParseResult parse(SourceBuffer source, int position) {
+        // true and false look like identifiers, but they are bool literals
+        if (!source.check(position, TokenKind.IDENTIFIER) || source.isKeyword(position, "true") || source.isKeyword(position, "false"))
+            return new ParseResult(Optional.empty(), position, "failed to parse variable expression");
 
-        this.ident = varName;
+        this.ident = source.text(position);
 
-        return new ParseResult(Optional.of(this), input2.substring(i), "");
+        return new ParseResult(Optional.of(this), position + 1, "");
     }
 
     public String getIdentifier() {
         return ident;
     }
 
+    public FunctionLiteral getResolvedFunction() {
+        return resolvedFunction;
+    }
+
+    /**
+     * @return the slot of the parameter this identifier was resolved to, or -1 if it isn't a parameter
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public void resolve(Scope scope) {
+        resolvedFunction = scope.getFunction();
+        slot = scope.slotOf(ident);
+        if (slot < 0) {
+            GraphNode context = scope.getContextNode();
+            if (context != null) importBinding = new ImportBinding(context, context.getImportsVersion(), scope.importOf(ident));
+        }
+    }
+
     @Override
-    public ASTNode interpret(GraphNode context, HashMap<String, ASTNode> additionalContext) {
-        if (additionalContext.containsKey(ident)) {
-            // here, context and additionalContext will never be used since the expression is a Literal anyways
-            return (additionalContext.get(ident)).interpret(context, additionalContext);
+    public ASTNode interpret(GraphNode context, Frame frame) {
+        if (frame.getFunction() == resolvedFunction) {
+            if (slot >= 0) return frame.get(slot).interpret(context, frame);
         } else {
-            for (GraphEdge edge : context.getImports()) {
-                GraphNode importNode = edge.getEndNode();
-                if (importNode.getName().equals(ident)) {
-                    // we give an empty hashmap, as the identifier's expression is to be evaluated in another context,
-                    // but obviously we don't give arguments to an identifier expression
-                    return (importNode.getAST()).interpret(importNode, new HashMap<>());
-                }
-            }
+            // resolved against some other function (or not resolved at all), so look the parameter up by name
+            int frameSlot = frame.slotOf(ident);
+            if (frameSlot >= 0) return frame.get(frameSlot).interpret(context, frame);
+        }
+
+        GraphNode importNode = findImport(context);
+        if (importNode != null) {
+            // the identifier's expression is evaluated in the context of the imported node,
+            // which keeps the result around when that expression can't change
+            return importNode.getValue();
         }
 
         return null;
     }
 
-    private boolean isAlpha(char c) {
-        return (c >= 'a' && c <= 'z') ||
-                (c >= 'A' && c <= 'Z') ||
-                c == '_';
+    @Override
+    public double interpretNumber(GraphNode context, Frame frame) {
+        // the frame may hold the number unboxed
+        if (frame.getFunction() == resolvedFunction && slot >= 0) return frame.getNumber(slot);
+        return ASTNode.super.interpretNumber(context, frame);
     }
 
-    private boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
+    /**
+     * @return the node imported by the context node under this identifier, or null if there is none
+     */
+    public GraphNode findImport(GraphNode context) {
+        ImportBinding binding = importBinding;
+        if (binding != null && binding.context() == context && binding.importsVersion() == context.getImportsVersion())
+            return binding.importNode();
+
+        // first use in this context, or its imports changed since the identifier was resolved
+        int importsVersion = context.getImportsVersion();
+        GraphNode importNode = null;
+        for (GraphEdge edge : context.getImports()) {
+            if (edge.getEndNode().getName().equals(ident)) {
+                importNode = edge.getEndNode();
+                break;
+            }
+        }
+        importBinding = new ImportBinding(context, importsVersion, importNode);
+        return importNode;
     }
 
     @Override
@@ -72,4 +120,16 @@ public class IdentifierExpr implements ASTNode {
         // why on earth would anyone make copies of unevaluated expressions
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.IDENTIFIER);
+        out.writeString(ident);
+    }
+
+    public static IdentifierExpr decode(AstReader in) {
+        IdentifierExpr identifierExpr = new IdentifierExpr();
+        identifierExpr.ident = in.readString();
+        return identifierExpr;
+    }
 }
@@ -1,11 +1,15 @@
 package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
-import com.example.kernlang.compiler.parser.expressions.literals.BoolLiteral;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class IfExpr implements ASTNode {
@@ -23,27 +27,23 @@ public class IfExpr implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("if")) {
-            input2 = input2.substring(2).stripLeading();
-            ParseResult parseConditionResult = new BoolExpr().parse(input2);
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.isKeyword(position, "if")) {
+            ParseResult parseConditionResult = new BinaryExpr().parse(source, position + 1);
             if (parseConditionResult.syntaxNode().isPresent()) {
                 condition = parseConditionResult.syntaxNode().get();
-                input2 = parseConditionResult.leftOverString().stripLeading();
-                if (input2.startsWith("then")) {
-                    input2 = input2.substring(4).stripLeading();
-                    ParseResult parseTrueResult = new Expr().parse(input2);
+                int pos = parseConditionResult.position();
+                if (source.isKeyword(pos, "then")) {
+                    ParseResult parseTrueResult = new Expr().parse(source, pos + 1);
                     if (parseTrueResult.syntaxNode().isPresent()) {
                         trueCaseExpr = parseTrueResult.syntaxNode().get();
-                        input2 = parseTrueResult.leftOverString().stripLeading();
-                        if (input2.startsWith("else")) {
-                            input2 = input2.substring(4).stripLeading();
-                            ParseResult parseFalseResult = new Expr().parse(input2);
+                        pos = parseTrueResult.position();
+                        if (source.isKeyword(pos, "else")) {
+                            ParseResult parseFalseResult = new Expr().parse(source, pos + 1);
                             if (parseFalseResult.syntaxNode().isPresent()) {
                                 falseCaseExpr = parseFalseResult.syntaxNode().get();
                                 return new ParseResult(Optional.of(this),
-                                                        parseFalseResult.leftOverString().stripLeading(),
+                                                        parseFalseResult.position(),
                                             "");
                             }
                         }
@@ -53,15 +53,40 @@ public class IfExpr implements ASTNode {
 
         }
 
-        return new ParseResult(Optional.empty(), input, "failed to parse if-expression");
+        return new ParseResult(Optional.empty(), position, "failed to parse if-expression");
     }
 
     @Override
-    public ASTNode interpret(GraphNode context, HashMap<String, ASTNode> additionalContext) {
-        if (((BoolLiteral)condition.interpret(context, additionalContext)).getLiteral()) {
-            return trueCaseExpr.interpret(context, additionalContext);
+    public void resolve(Scope scope) {
+        condition.resolve(scope);
+        trueCaseExpr.resolve(scope);
+        falseCaseExpr.resolve(scope);
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode context, Frame frame) {
+        if (condition.interpretBool(context, frame)) {
+            return trueCaseExpr.interpret(context, frame);
+        } else {
+            return falseCaseExpr.interpret(context, frame);
+        }
+    }
+
+    @Override
+    public double interpretNumber(GraphNode context, Frame frame) {
+        if (condition.interpretBool(context, frame)) {
+            return trueCaseExpr.interpretNumber(context, frame);
+        } else {
+            return falseCaseExpr.interpretNumber(context, frame);
+        }
+    }
+
+    @Override
+    public boolean interpretBool(GraphNode context, Frame frame) {
+        if (condition.interpretBool(context, frame)) {
+            return trueCaseExpr.interpretBool(context, frame);
         } else {
-            return falseCaseExpr.interpret(context, additionalContext);
+            return falseCaseExpr.interpretBool(context, frame);
         }
     }
 
@@ -70,4 +95,20 @@ public class IfExpr implements ASTNode {
         // why on earth would anyone make copies of unevaluated expressions
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.IF);
+        out.writeNode(condition);
+        out.writeNode(trueCaseExpr);
+        out.writeNode(falseCaseExpr);
+    }
+
+    public static IfExpr decode(AstReader in) {
+        IfExpr ifExpr = new IfExpr();
+        ifExpr.condition = in.readNode();
+        ifExpr.trueCaseExpr = in.readNode();
+        ifExpr.falseCaseExpr = in.readNode();
+        return ifExpr;
+    }
 }
@@ -20,7 +20,8 @@ public class Literal extends ExtendibleASTNode {
                         FunctionLiteral::new,
                         NumberLiteral::new,
                         RecordLiteral::new,
-                        ArrayLiteral::new
+                        ArrayLiteral::new,
+                        BoolLiteral::new
                 )),
                 "failed to parse Factor"
         );
@@ -0,0 +1,56 @@
+package com.example.kernlang.compiler.parser.expressions;
+
+import com.example.kernlang.compiler.lexer.TokenKind;
+import com.example.kernlang.compiler.parser.ASTNode;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The binary operators BinaryExpr knows about, looked up by the kind of the operator token.
+ * Language extensions can add their own operators with register(), without writing a parser for them.
+ * A higher precedence binds tighter, and all operators are left-associative.
+ */
+public class OperatorTable {
+    public static final int EQUALITY = 1;
+    public static final int COMPARISON = 2;
+    public static final int ADDITIVE = 3;
+    public static final int MULTIPLICATIVE = 4;
+
+    /**
+     * builds the syntax node of an operator application, once both operands have been parsed
+     */
+    @FunctionalInterface
+    public interface NodeBuilder {
+        ASTNode build(ASTNode left, String operator, ASTNode right);
+    }
+
+    public record BinaryOperator(int precedence, NodeBuilder builder) {}
+
+    // nodes are compiled in parallel, so lookups happen from several threads at once
+    private static final ConcurrentHashMap<Integer, BinaryOperator> operators = new ConcurrentHashMap<>();
+
+    static {
+        register(TokenKind.EQUAL_EQUAL, EQUALITY, EqualityExpr::new);
+        register(TokenKind.BANG_EQUAL, EQUALITY, EqualityExpr::new);
+
+        register(TokenKind.LESS, COMPARISON, (left, op, right) -> new Comparison(left, op.charAt(0), right));
+        register(TokenKind.GREATER, COMPARISON, (left, op, right) -> new Comparison(left, op.charAt(0), right));
+
+        register(TokenKind.PLUS, ADDITIVE, (left, op, right) -> new AddSub(left, op.charAt(0), right));
+        register(TokenKind.MINUS, ADDITIVE, (left, op, right) -> new AddSub(left, op.charAt(0), right));
+
+        register(TokenKind.STAR, MULTIPLICATIVE, (left, op, right) -> new MulDiv(left, op.charAt(0), right));
+        register(TokenKind.SLASH, MULTIPLICATIVE, (left, op, right) -> new MulDiv(left, op.charAt(0), right));
+    }
+
+    public static void register(int tokenKind, int precedence, NodeBuilder builder) {
+        operators.put(tokenKind, new BinaryOperator(precedence, builder));
+    }
+
+    /**
+     * @return the operator for the given kind of token, or null if that token isn't a binary operator
+     */
+    public static BinaryOperator lookup(int tokenKind) {
+        return operators.get(tokenKind);
+    }
+}
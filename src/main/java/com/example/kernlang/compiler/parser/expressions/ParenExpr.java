@@ -1,10 +1,16 @@
 package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class ParenExpr implements ASTNode {
@@ -14,25 +20,43 @@ public class ParenExpr implements ASTNode {
         return "\n\t" + indent + "parenexpr:" + expr.toString(indent + "\t");
     }
 
+    public ASTNode getExpr() {
+        return expr;
+    }
+
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("(")) {
-            ParseResult parseExprResult = new Expr().parse(input2.substring(1).stripLeading());
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.check(position, TokenKind.LEFT_PAREN)) {
+            ParseResult parseExprResult = new Expr().parse(source, position + 1);
             if (parseExprResult.syntaxNode().isPresent()) {
                 expr = parseExprResult.syntaxNode().get();
-                input2 = parseExprResult.leftOverString().stripLeading();
-                if (input2.startsWith(")")) {
-                    return new ParseResult(Optional.of(this), input2.substring(1).stripLeading(), "");
+                int pos = parseExprResult.position();
+                if (source.check(pos, TokenKind.RIGHT_PAREN)) {
+                    return new ParseResult(Optional.of(this), pos + 1, "");
                 }
             }
         }
-        return new ParseResult(Optional.empty(), "", "failed to parse parenthesized expression");
+        return new ParseResult(Optional.empty(), position, "failed to parse parenthesized expression");
+    }
+
+    @Override
+    public void resolve(Scope scope) {
+        expr.resolve(scope);
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
+        return expr.interpret(contextNode, frame);
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        return expr.interpret(contextNode, additionalContext);
+    public double interpretNumber(GraphNode contextNode, Frame frame) {
+        return expr.interpretNumber(contextNode, frame);
+    }
+
+    @Override
+    public boolean interpretBool(GraphNode contextNode, Frame frame) {
+        return expr.interpretBool(contextNode, frame);
     }
 
     @Override
@@ -40,4 +64,16 @@ public class ParenExpr implements ASTNode {
         // why on earth would anyone make copies of unevaluated expressions
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.PAREN);
+        out.writeNode(expr);
+    }
+
+    public static ParenExpr decode(AstReader in) {
+        ParenExpr paren = new ParenExpr();
+        paren.expr = in.readNode();
+        return paren;
+    }
 }
@@ -2,14 +2,20 @@ package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphEdge;
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.literals.RecordLiteral;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.Shape;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Optional;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -24,6 +30,12 @@ public class RecordAccess implements ASTNode {
     public ASTNode rootRecord;
     ArrayList<String> fieldnames = new ArrayList<>();
 
+    // beyond this many shapes a segment stops caching and just looks its field up
+    private static final int MAX_CACHED_SHAPES = 4;
+    private CacheEntry[] caches;
+
+    private record CacheEntry(Shape shape, int slot, CacheEntry next, int depth) {}
+
 
     @Override
     public String toString(String indent) {
@@ -34,83 +46,46 @@ public class RecordAccess implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String originalInput = input;
-        input = input.stripLeading();
-
-        String[] recordstrings = input.split(":");
-
-        int idx = 0;
-
-        // first recordString is an expression representing a record (identifier or recordliteral)
-        if (recordstrings.length > 1) {
-            if (recordstrings[0].startsWith("{")) {
-                ParseResult res = new RecordLiteral().parse(recordstrings[0]);
-                if (res.syntaxNode().isPresent()) {
-                    rootRecord = res.syntaxNode().get();
-                } else return new ParseResult(Optional.empty(), originalInput, "failed to parse record access");
-            } else {
-                String fieldName = recordstrings[0].strip();
-
-                Pattern identifierPattern = Pattern.compile("^[_a-zA-Z][_a-zA-Z0-9]*");
-                if (identifierPattern.matcher(fieldName).matches()) {
-                    ParseResult res = new IdentifierExpr().parse(recordstrings[0]);
-                    if (res.syntaxNode().isPresent()) {
-                        rootRecord = res.syntaxNode().get();
-                    } else return new ParseResult(Optional.empty(), originalInput, "failed to parse record access");
-                } else return new ParseResult(Optional.empty(), originalInput, "failed to parse record access");
-
-            }
-            idx += recordstrings[0].length() + 1; // add one for the ':' character
-        } else return new ParseResult(Optional.empty(), originalInput, "failed to parse record access");
-
-        for (int i = 1; i < recordstrings.length; i++) {
-            String fieldName = recordstrings[i].strip();
-
-            Pattern identifierPattern = Pattern.compile("^[_a-zA-Z][_a-zA-Z0-9]*");
-            if (identifierPattern.matcher(fieldName).matches()) {
-                fieldnames.add(fieldName);
-                idx += recordstrings[i].length() + 1; // add one for the ':' character
-            } else break;
+    public ParseResult parse(SourceBuffer source, int position) {
+        // the root is an expression representing a record (identifier or recordliteral)
+        ParseResult res;
+        if (source.check(position, TokenKind.LEFT_BRACE)) res = new RecordLiteral().parse(source, position);
+        else res = new IdentifierExpr().parse(source, position);
+
+        int pos;
+        if (res.syntaxNode().isPresent()) {
+            rootRecord = res.syntaxNode().get();
+            pos = res.position();
+        } else return new ParseResult(Optional.empty(), position, "failed to parse record access");
+
+        // every ':' followed by an identifier selects one more field
+        while (source.check(pos, TokenKind.COLON) && source.check(pos + 1, TokenKind.IDENTIFIER)) {
+            fieldnames.add(source.text(pos + 1));
+            pos += 2;
         }
-        idx -= 1;
-
-
-        // now there might be one more fieldname, which previously got concatenated with the rest of the input,
-        // so we try and see one more time if this is the case
-        input = input.substring(idx);
-        if (input.startsWith(":")) {
-            input = input.substring(1);
 
-            String fieldName = "";
-            if (isAlpha(input.charAt(0))) {
-                fieldName += input.charAt(0);
+        if (fieldnames.isEmpty()) return new ParseResult(Optional.empty(), position, "failed to parse record access");
 
-                int i = 1;
-                while (isAlpha(input.charAt(i)) || isDigit(input.charAt(i))) {
-                    fieldName += input.charAt(i);
-                    i++;
-                }
-                fieldnames.add(fieldName);
-                input = input.substring(i).stripLeading();
-            }
-        }
+        return new ParseResult(Optional.of(this), pos, "");
+    }
 
-        return new ParseResult(Optional.of(this), input, "");
+    @Override
+    public void resolve(Scope scope) {
+        rootRecord.resolve(scope);
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        RecordLiteral currentRecord = (RecordLiteral) rootRecord.interpret(contextNode, additionalContext);
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
+        RecordLiteral currentRecord = (RecordLiteral) rootRecord.interpret(contextNode, frame);
         // all fieldnames up until the last one indicate a recordliteral
         for (int i = 0; i < fieldnames.size() - 1;i++) {
-            currentRecord = (RecordLiteral) currentRecord.getField(fieldnames.get(i));
+            currentRecord = (RecordLiteral) field(currentRecord, i);
             if (currentRecord == null) return null;
         }
-        return currentRecord.getField(fieldnames.get(fieldnames.size()-1));
+        return field(currentRecord, fieldnames.size() - 1);
     }
 
-    public void assignValue(ASTNode value, GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
+    public void assignValue(ASTNode value, GraphNode contextNode, Frame frame) {
         /*if (rootRecord instanceof IdentifierExpr) {
             String ident = ((IdentifierExpr) rootRecord).getIdentifier();
             for (GraphEdge edge : contextNode.getImports()) {
@@ -122,25 +97,41 @@ public class RecordAccess implements ASTNode {
         }*/
 
 
-        RecordLiteral currentRecord = (RecordLiteral) rootRecord.interpret(contextNode, additionalContext);
-        /*if (rootRecord instanceof IdentifierExpr) currentRecord = (RecordLiteral) rootRecord.interpret(contextNode, additionalContext);
+        RecordLiteral currentRecord = (RecordLiteral) rootRecord.interpret(contextNode, frame);
+        /*if (rootRecord instanceof IdentifierExpr) currentRecord = (RecordLiteral) rootRecord.interpret(contextNode, frame);
         else currentRecord = (RecordLiteral) rootRecord;*/
         // all fieldnames up until the last one indicate a recordliteral
         for (int i = 0; i < fieldnames.size() - 1;i++) {
-            currentRecord = (RecordLiteral) currentRecord.getField(fieldnames.get(i));
+            currentRecord = (RecordLiteral) field(currentRecord, i);
             if (currentRecord == null) return;
         }
-        currentRecord.setField(fieldnames.get(fieldnames.size()-1), value);
+        int segment = fieldnames.size() - 1;
+        int slot = slotOf(currentRecord.getShape(), segment);
+        if (slot >= 0) currentRecord.setSlot(slot, value);
     }
 
-    private boolean isAlpha(char c) {
-        return (c >= 'a' && c <= 'z') ||
-                (c >= 'A' && c <= 'Z') ||
-                c == '_';
+    private ASTNode field(RecordLiteral record, int segment) {
+        int slot = slotOf(record.getShape(), segment);
+        return slot < 0 ? null : record.getSlot(slot);
     }
 
-    private boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
+    /**
+     * Every segment of the access remembers the slot of its field for the last few shapes it has seen,
+     * so in the common case looking up a field is comparing a shape reference and loading from an array.
+     */
+    private int slotOf(Shape shape, int segment) {
+        if (caches == null) caches = new CacheEntry[fieldnames.size()];
+        CacheEntry first = caches[segment];
+        for (CacheEntry entry = first; entry != null; entry = entry.next) {
+            if (entry.shape == shape) return entry.slot;
+        }
+
+        int slot = shape.slotOf(fieldnames.get(segment));
+        // too many different shapes go through here, caching them would only slow down the check
+        if (first != null && first.depth == MAX_CACHED_SHAPES) return slot;
+        // entries are never changed, only prepended, so a process thread racing on this always sees whole entries
+        caches[segment] = new CacheEntry(shape, slot, first, first == null ? 1 : first.depth + 1);
+        return slot;
     }
 
     @Override
@@ -148,4 +139,18 @@ public class RecordAccess implements ASTNode {
         // why on earth would anyone make copies of unevaluated expressions
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.RECORD_ACCESS);
+        out.writeNode(rootRecord);
+        out.writeStrings(fieldnames);
+    }
+
+    public static RecordAccess decode(AstReader in) {
+        RecordAccess access = new RecordAccess();
+        access.rootRecord = in.readNode();
+        access.fieldnames = in.readStrings();
+        return access;
+    }
 }
@@ -1,21 +1,34 @@
 package com.example.kernlang.compiler.parser.expressions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
-import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Optional;
 
 public class UnaryExpr implements ASTNode {
     private char operator;
     private ASTNode expr;
 
-    private ArrayList<Character> unaryOps = new ArrayList<>(Arrays.asList('!', '-', '&', '$'));
+    private ArrayList<Integer> unaryOps = new ArrayList<>(Arrays.asList(
+            TokenKind.BANG, TokenKind.MINUS, TokenKind.AMPERSAND, TokenKind.DOLLAR));
 
+    public UnaryExpr() {}
+
+    public UnaryExpr(char operator, ASTNode expr) {
+        this.operator = operator;
+        this.expr = expr;
+    }
 
     @Override
     public String toString(String indent) {
@@ -23,29 +36,31 @@ public class UnaryExpr implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        operator = input2.charAt(0);
-        if (!unaryOps.contains(operator))
-            return new ParseResult(Optional.empty(), input, "failed to parse unary");
-
-        input2 = input2.substring(1);
-        ParseResult parseResult = new Factor().parse(input2);
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (!unaryOps.contains(source.kind(position)))
+            return new ParseResult(Optional.empty(), position, "failed to parse unary");
+        operator = source.firstChar(position);
+
+        ParseResult parseResult = new Factor().parse(source, position + 1);
         if (parseResult.syntaxNode().isPresent()) {
             expr = parseResult.syntaxNode().get();
-            return new ParseResult(Optional.of(this), parseResult.leftOverString(), "");
+            return new ParseResult(Optional.of(this), parseResult.position(), "");
         }
 
-        return new ParseResult(Optional.empty(), input, "failed to parse unary");
+        return new ParseResult(Optional.empty(), position, "failed to parse unary");
 
     }
 
     @Override
-    public Literal interpret(GraphNode context, HashMap<String, ASTNode> additionalContext) {
+    public void resolve(Scope scope) {
+        expr.resolve(scope);
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode context, Frame frame) {
         switch (operator) {
             case '-' -> {
-                Double num = -1 * ((NumberLiteral) (expr.interpret(context, additionalContext))).getNumber();
-                return new Literal(new NumberLiteral(num));
+                return new NumberValue(interpretNumber(context, frame));
             }
             case '$' -> { return null; }
             case '!' -> { return null; }
@@ -55,6 +70,12 @@ public class UnaryExpr implements ASTNode {
     }
 
 
+    @Override
+    public double interpretNumber(GraphNode context, Frame frame) {
+        if (operator == '-') return -expr.interpretNumber(context, frame);
+        return ASTNode.super.interpretNumber(context, frame);
+    }
+
     public char getOperator() {
         return operator;
     }
@@ -68,4 +89,18 @@ public class UnaryExpr implements ASTNode {
         // why on earth would anyone make copies of unevaluated expressions
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.UNARY);
+        out.writeChar(operator);
+        out.writeNode(expr);
+    }
+
+    public static UnaryExpr decode(AstReader in) {
+        UnaryExpr unary = new UnaryExpr();
+        unary.operator = in.readChar();
+        unary.expr = in.readNode();
+        return unary;
+    }
 }
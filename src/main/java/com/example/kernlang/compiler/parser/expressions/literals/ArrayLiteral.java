@@ -1,78 +1,268 @@
 package com.example.kernlang.compiler.parser.expressions.literals;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.Expr;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.BoolValue;
+import com.example.kernlang.compiler.runtime.CharValue;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
+import com.example.kernlang.compiler.runtime.Value;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * Arrays keep their elements in the most compact store that fits all of them:
+ * a double[], char[] or boolean[] when all elements are numbers, chars or bools, and a list of syntax nodes otherwise.
+ * Storing an element that doesn't fit the store turns the array into a list of nodes for good.
+ * Copies of an array share its store, primitive or not, until one of them writes to it (copy-on-write),
+ * so assigning a big array somewhere doesn't copy all of its elements.
+ * Arrays and records in a shared list are copied the same way once the list gets copied, which also happens
+ * before one of them is handed out, since a function can change an array or record it was given.
+ */
 public class ArrayLiteral implements ASTNode {
-    ArrayList<ASTNode> elements = new ArrayList<>();
+    // exactly one of these holds the elements, the others are null
+    private ArrayList<ASTNode> elements = new ArrayList<>();
+    private double[] numbers = null;
+    private char[] chars = null;
+    private boolean[] bools = null;
+    // the number of elements, the primitive stores can have room for more
+    private int size = 0;
+    // set when another array uses the same store, whichever one writes first gets its own copy
+    private boolean sharedStore = false;
 
     @Override
     public String toString(String indent) {
-        return indent + "array:\n" + elements
-                .stream()
-                .map(el -> el == null ? indent + "\tnull" : el.toString(indent + "\t"))
-                .collect(Collectors.joining("\n"));
+        StringBuilder result = new StringBuilder(indent + "array:\n");
+        for (int i = 0; i < size; i++) {
+            ASTNode el = getElement(i);
+            if (i > 0) result.append("\n");
+            result.append(el == null ? indent + "\tnull" : el.toString(indent + "\t"));
+        }
+        return result.toString();
     }
 
     @Override
     public ASTNode deepcopy() {
+        // the store only gets copied once either array writes to it
         ArrayLiteral result = new ArrayLiteral();
-        for (ASTNode element : elements) {
-            result.addElement(element.deepcopy());
-        }
+        result.size = size;
+        result.elements = elements;
+        result.numbers = numbers;
+        result.chars = chars;
+        result.bools = bools;
+        result.sharedStore = true;
+        sharedStore = true;
         return result;
     }
 
-    public ArrayList<ASTNode> getElements() {
-        return elements;
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the elements are numbers stored as doubles, which getNumber reads without boxing
+     */
+    public boolean holdsNumbers() {
+        return numbers != null;
     }
 
     public void addElement(ASTNode el) {
-        elements.add(el);
+        ownStore();
+        if (elements != null) {
+            elements.add(el);
+            size++;
+            // arrays only get built element by element, the first one decides the store
+            if (size == 1) specialize();
+            return;
+        }
+        ensureCapacity(size + 1);
+        size++;
+        setElement(size - 1, el);
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String originalInput = input;
-        input = input.stripLeading();
-        if (input.startsWith("[")) {
-            input = input.substring(1).stripLeading();
-            while (!input.startsWith("]")) {
-                ParseResult parseRes = new Expr().parse(input);
+    public ParseResult parse(SourceBuffer source, int position) {
+        int pos = position;
+        if (source.check(pos, TokenKind.LEFT_BRACKET)) {
+            pos++;
+            while (!source.check(pos, TokenKind.RIGHT_BRACKET)) {
+                ParseResult parseRes = new Expr().parse(source, pos);
                 if (parseRes.syntaxNode().isPresent()) {
                     elements.add(parseRes.syntaxNode().get());
-                    input = parseRes.leftOverString().stripLeading();
-                    if (input.startsWith(",")) input = input.substring(1).stripLeading();
+                    pos = parseRes.position();
+                    if (source.check(pos, TokenKind.COMMA)) pos++;
                 } else {
                     return new ParseResult(Optional.empty(),
-                                            originalInput,
+                                            position,
                                 "failed to parse array literal");
                 }
             }
-            input = input.substring(1).stripLeading();
+            pos++;
         } else return new ParseResult(Optional.empty(),
-                                    originalInput,
+                                    position,
                         "failed to parse array literal");
-        return new ParseResult(Optional.of(this), input, "");
+        size = elements.size();
+        specialize();
+        return new ParseResult(Optional.of(this), pos, "");
+    }
+
+    @Override
+    public void resolve(Scope scope) {
+        if (elements == null) return;
+        for (ASTNode element : elements) {
+            if (element != null) element.resolve(scope);
+        }
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
         return this;
     }
 
-    public ASTNode getElement(NumberLiteral idx) {
-        return elements.get(idx.getNumber().intValue());
+    /**
+     * @return the element at the index, elements written in the array literal itself haven't been evaluated yet
+     */
+    public ASTNode getElement(int idx) {
+        Objects.checkIndex(idx, size);
+        if (numbers != null) return new NumberValue(numbers[idx]);
+        if (chars != null) return CharValue.of(chars[idx]);
+        if (bools != null) return BoolValue.of(bools[idx]);
+        ASTNode element = elements.get(idx);
+        if (sharedStore && (element instanceof ArrayLiteral || element instanceof RecordLiteral)) {
+            // whoever gets this element may change it, which mustn't show up in the other arrays using the list
+            ownStore();
+            element = elements.get(idx);
+        }
+        return element;
+    }
+
+    /**
+     * only for arrays that hold numbers
+     */
+    public double getNumber(int idx) {
+        Objects.checkIndex(idx, size);
+        return numbers[idx];
+    }
+
+    public void setElement(int idx, ASTNode value) {
+        Objects.checkIndex(idx, size);
+        ownStore();
+        if (numbers != null && value instanceof NumberValue number) numbers[idx] = number.getNumber();
+        else if (chars != null && value instanceof CharValue character) chars[idx] = character.getChar();
+        else if (bools != null && value instanceof BoolValue bool) bools[idx] = bool.getBool();
+        else {
+            generalize();
+            elements.set(idx, value);
+        }
+    }
+
+    /**
+     * @return a new array with the elements from index `from` up until `to`, kept in the same kind of store
+     */
+    public ArrayLiteral slice(int from, int to) {
+        Objects.checkFromToIndex(from, to, size);
+        ArrayLiteral result = new ArrayLiteral();
+        result.size = to - from;
+        if (elements != null) {
+            for (ASTNode element : elements.subList(from, to)) result.elements.add(element == null ? null : element.deepcopy());
+        } else {
+            result.elements = null;
+            if (numbers != null) result.numbers = Arrays.copyOfRange(numbers, from, to);
+            if (chars != null) result.chars = Arrays.copyOfRange(chars, from, to);
+            if (bools != null) result.bools = Arrays.copyOfRange(bools, from, to);
+        }
+        return result;
+    }
+
+    /**
+     * picks the primitive store that fits the elements, if there is one
+     */
+    private void specialize() {
+        if (size == 0) return;
+        if (elements.stream().allMatch(el -> el instanceof NumberLiteral || el instanceof NumberValue)) {
+            numbers = new double[size];
+            for (int i = 0; i < size; i++) numbers[i] = elements.get(i).interpretNumber(null, Frame.EMPTY);
+        } else if (elements.stream().allMatch(el -> el instanceof CharLiteral || el instanceof CharValue)) {
+            chars = new char[size];
+            for (int i = 0; i < size; i++) chars[i] = ((CharValue) elements.get(i).interpret(null, Frame.EMPTY)).getChar();
+        } else if (elements.stream().allMatch(el -> el instanceof BoolLiteral || el instanceof BoolValue)) {
+            bools = new boolean[size];
+            for (int i = 0; i < size; i++) bools[i] = elements.get(i).interpretBool(null, Frame.EMPTY);
+        } else {
+            return;
+        }
+        elements = null;
+    }
+
+    /**
+     * moves the elements into a list of nodes, which can hold anything
+     */
+    private void generalize() {
+        if (elements != null) return;
+        ArrayList<ASTNode> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) result.add(getElement(i));
+        elements = result;
+        numbers = null;
+        chars = null;
+        bools = null;
+        sharedStore = false;
+    }
+
+    /**
+     * copies the store if other arrays still use it, so writing to it won't change them
+     */
+    private void ownStore() {
+        if (!sharedStore) return;
+        if (elements != null) {
+            ArrayList<ASTNode> result = new ArrayList<>(elements.size());
+            // arrays and records don't get copied for real either, they share their own store in turn
+            for (ASTNode element : elements) result.add(element == null ? null : element.deepcopy());
+            elements = result;
+        }
+        if (numbers != null) numbers = numbers.clone();
+        if (chars != null) chars = chars.clone();
+        if (bools != null) bools = bools.clone();
+        sharedStore = false;
+    }
+
+    private void ensureCapacity(int capacity) {
+        int length = numbers != null ? numbers.length : chars != null ? chars.length : bools.length;
+        if (capacity <= length) return;
+        int newLength = Math.max(capacity, length * 2);
+        if (numbers != null) numbers = Arrays.copyOf(numbers, newLength);
+        if (chars != null) chars = Arrays.copyOf(chars, newLength);
+        if (bools != null) bools = Arrays.copyOf(bools, newLength);
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.ARRAY_LITERAL);
+        if (elements != null) {
+            out.writeNodes(elements);
+            return;
+        }
+        // primitive elements are written as the literals they came from, decoding picks the same store again
+        ArrayList<Value> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) values.add((Value) getElement(i));
+        out.writeNodes(values);
     }
 
-    public void setElement(NumberLiteral idx, ASTNode value) {
-        elements.set(idx.getNumber().intValue(), value);
+    public static ArrayLiteral decode(AstReader in) {
+        ArrayLiteral array = new ArrayLiteral();
+        array.elements = in.readNodes();
+        array.size = array.elements.size();
+        array.specialize();
+        return array;
     }
 }
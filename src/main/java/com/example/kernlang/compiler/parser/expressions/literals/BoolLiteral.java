@@ -1,10 +1,16 @@
 package com.example.kernlang.compiler.parser.expressions.literals;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.BoolValue;
+import com.example.kernlang.compiler.runtime.Frame;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class BoolLiteral implements ASTNode {
@@ -34,23 +40,30 @@ public class BoolLiteral implements ASTNode {
 
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("true")) {
-            input2 = input2.substring(4).stripLeading();
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.isKeyword(position, "true")) {
             literal = true;
-            return new ParseResult(Optional.of(this), input2, "");
-        } else if (input2.startsWith("false")) {
-            input2 = input2.substring(5).stripLeading();
+            return new ParseResult(Optional.of(this), position + 1, "");
+        } else if (source.isKeyword(position, "false")) {
             literal = false;
-            return new ParseResult(Optional.of(this), input2, "");
+            return new ParseResult(Optional.of(this), position + 1, "");
         }
-        return new ParseResult(Optional.empty(), input, "failed to parse boolean literal");
+        return new ParseResult(Optional.empty(), position, "failed to parse boolean literal");
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        return this;
+    public void resolve(Scope scope) {
+        // literals don't refer to anything
+    }
+
+    @Override
+    public BoolValue interpret(GraphNode contextNode, Frame frame) {
+        return BoolValue.of(literal);
+    }
+
+    @Override
+    public boolean interpretBool(GraphNode contextNode, Frame frame) {
+        return literal;
     }
 
     @Override
@@ -65,4 +78,14 @@ public class BoolLiteral implements ASTNode {
 
         return this.literal.equals(((BoolLiteral) obj).literal);
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.BOOL_LITERAL);
+        out.writeBoolean(literal);
+    }
+
+    public static BoolLiteral decode(AstReader in) {
+        return new BoolLiteral(in.readBoolean());
+    }
 }
@@ -1,10 +1,17 @@
 package com.example.kernlang.compiler.parser.expressions.literals;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.CharValue;
+import com.example.kernlang.compiler.runtime.Frame;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class CharLiteral implements ASTNode {
@@ -33,32 +40,22 @@ public class CharLiteral implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("'")) {
-            input2 = input2.substring(1);
-            if (input2.startsWith("\\")) {
-                input2 = input2.substring(1);
-                if (input2.startsWith("n")) this.literal = '\n';
-                else if (input2.startsWith("t")) this.literal = '\t';
-                else if (input2.startsWith("\\")) this.literal = '\\';
-                else return new ParseResult(Optional.empty(), input, "failed to parse char literal");
-            } else {
-                literal = input2.charAt(0);
-            }
-            input2 = input2.substring(1);
-
-            if (input2.startsWith(("'"))) {
-                input2 = input2.substring(1).stripLeading();
-                return new ParseResult(Optional.of(this), input2, "");
-            }
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.check(position, TokenKind.CHAR)) {
+            literal = source.charValue(position);
+            return new ParseResult(Optional.of(this), position + 1, "");
         }
-        return new ParseResult(Optional.empty(), input, "failed to parse char literal");
+        return new ParseResult(Optional.empty(), position, "failed to parse char literal");
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        return this;
+    public void resolve(Scope scope) {
+        // literals don't refer to anything
+    }
+
+    @Override
+    public CharValue interpret(GraphNode contextNode, Frame frame) {
+        return CharValue.of(literal);
     }
 
     @Override
@@ -73,4 +70,16 @@ public class CharLiteral implements ASTNode {
 
         return this.literal.equals(((CharLiteral) obj).literal);
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.CHAR_LITERAL);
+        out.writeChar(literal);
+    }
+
+    public static CharLiteral decode(AstReader in) {
+        CharLiteral charLiteral = new CharLiteral();
+        charLiteral.literal = in.readChar();
+        return charLiteral;
+    }
 }
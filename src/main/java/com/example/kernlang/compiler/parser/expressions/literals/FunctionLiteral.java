@@ -1,11 +1,28 @@
 package com.example.kernlang.compiler.parser.expressions.literals;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.jit.CompiledFunction;
+import com.example.kernlang.compiler.jit.JitState;
+import com.example.kernlang.compiler.parser.expressions.FunctionCall;
 import com.example.kernlang.compiler.parser.expressions.IdentifierExpr;
+import com.example.kernlang.compiler.parser.expressions.IfExpr;
+import com.example.kernlang.compiler.parser.expressions.ParenExpr;
 import com.example.kernlang.compiler.parser.statements.ReturnStmt;
 import com.example.kernlang.compiler.parser.statements.Statement;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
+import com.example.kernlang.compiler.runtime.UnitValue;
+import com.example.kernlang.compiler.vm.BytecodeCompiler;
+import com.example.kernlang.compiler.vm.Chunk;
+import com.example.kernlang.compiler.vm.VM;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -15,8 +32,18 @@ import java.util.Optional;
 public class FunctionLiteral implements ASTNode {
     private final ArrayList<Statement> statements = new ArrayList<>();
     private final ArrayList<String> paramIdentifiers = new ArrayList<>();
+    // loop counters in the body, numbered while resolving it
+    private int localSlots = 0;
     private GraphNode functionContext = null;
 
+    // the bytecode of the body, only compiled once the function gets called on the VM,
+    // and again once the imports of its node change (an import can shadow a builtin the bytecode uses)
+    private record VersionedChunk(Chunk chunk, int importsVersion) {}
+    private volatile VersionedChunk chunk = null;
+
+    // counts the calls of this function, and holds its JVM bytecode once it's hot
+    private final JitState jit = new JitState(this);
+
     @Override
     public String toString(String indent) {
         String result = "\n" + indent + "function:\n" +
@@ -42,56 +69,75 @@ public class FunctionLiteral implements ASTNode {
     public FunctionLiteral() {}
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("\\")) {
-            input2 = input2.substring(1).stripLeading();
-            if (!input2.startsWith("->")) {
-                ParseResult parseArgResult = new IdentifierExpr().parse(input2);
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.check(position, TokenKind.BACKSLASH)) {
+            int pos = position + 1;
+            if (!source.check(pos, TokenKind.ARROW)) {
+                ParseResult parseArgResult = new IdentifierExpr().parse(source, pos);
                 if (parseArgResult.syntaxNode().isPresent()) {
                     paramIdentifiers.add(((IdentifierExpr)parseArgResult.syntaxNode().get()).getIdentifier());
-                    input2 = parseArgResult.leftOverString().stripLeading();
+                    pos = parseArgResult.position();
                 } else {
-                    return new ParseResult(Optional.empty(), input, "failed to parse function literal");
+                    return new ParseResult(Optional.empty(), position, "failed to parse function literal");
                 }
-                while(input2.startsWith(",")) {
-                    input2 = input2.substring(1).stripLeading();
-                    parseArgResult = new IdentifierExpr().parse(input2);
+                while(source.check(pos, TokenKind.COMMA)) {
+                    parseArgResult = new IdentifierExpr().parse(source, pos + 1);
                     if (parseArgResult.syntaxNode().isPresent()) {
                         paramIdentifiers.add(((IdentifierExpr)parseArgResult.syntaxNode().get()).getIdentifier());
-                        input2 = parseArgResult.leftOverString().stripLeading();
+                        pos = parseArgResult.position();
                     } else {
-                        return new ParseResult(Optional.empty(), input, "failed to parse function literal");
+                        return new ParseResult(Optional.empty(), position, "failed to parse function literal");
                     }
                 }
             }
-            if (input2.startsWith("->")) {
-                input2 = input2.substring(2).stripLeading();
-                if (input2.startsWith("{")) {
-                    input2 = input2.substring(1);
-                    while (!input2.startsWith("}")) {
-                        ParseResult parseStmtRes = new Statement().parse(input2);
+            if (source.check(pos, TokenKind.ARROW)) {
+                pos++;
+                if (source.check(pos, TokenKind.LEFT_BRACE)) {
+                    pos++;
+                    while (!source.check(pos, TokenKind.RIGHT_BRACE)) {
+                        ParseResult parseStmtRes = new Statement().parse(source, pos);
                         if (parseStmtRes.syntaxNode().isPresent()) {
                             statements.add((Statement)parseStmtRes.syntaxNode().get());
-                            input2 = parseStmtRes.leftOverString().stripLeading();
-                        } else return new ParseResult(Optional.empty(), input, "failed to parse function literal");
+                            pos = parseStmtRes.position();
+                        } else return new ParseResult(Optional.empty(), position, "failed to parse function literal");
                     }
-                    input2 = input2.substring(1).stripLeading();
-                    return new ParseResult(Optional.of(this), input2, "");
+                    return new ParseResult(Optional.of(this), pos + 1, "");
                 }
             }
         }
-        return new ParseResult(Optional.empty(), input, "failed to parse function literal");
+        return new ParseResult(Optional.empty(), position, "failed to parse function literal");
     }
 
     @Override
-    public ASTNode interpret(GraphNode context, HashMap<String, ASTNode> additionalContext) {
+    public void resolve(Scope scope) {
+        // inside the body, the parameters of this function are what's in scope
+        Scope bodyScope = scope.enterFunction(this);
+        localSlots = 0;
+        for (Statement statement : statements) statement.resolve(bodyScope);
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode context, Frame frame) {
         if (functionContext == null) functionContext = context;
         return this;
     }
 
     public ArrayList<String> getParamIdentifiers() { return paramIdentifiers; }
 
+    /**
+     * @return a slot for a loop counter, which comes after the parameters in the frames of this function
+     */
+    public int declareLocal() {
+        return paramIdentifiers.size() + localSlots++;
+    }
+
+    /**
+     * @return the number of slots a frame for calling this function needs
+     */
+    public int getFrameSize() {
+        return paramIdentifiers.size() + localSlots;
+    }
+
     public ArrayList<Statement> getStatements() {
         return statements;
     }
@@ -100,19 +146,109 @@ public class FunctionLiteral implements ASTNode {
         return functionContext;
     }
 
-    public ASTNode callWithArgs(HashMap<String, ASTNode> additionalContext) {
-        // getting the actual function literal
+    /**
+     * calls this function with arguments given by the names of the parameters,
+     * parameters that aren't given get no value and arguments that aren't parameters are ignored
+     */
+    public ASTNode callWithArgs(HashMap<String, ASTNode> args) {
+        Frame frame = new Frame(this, getFrameSize());
+        for (int i = 0; i < paramIdentifiers.size(); i++) frame.set(i, args.get(paramIdentifiers.get(i)));
+        return call(frame);
+    }
+
+    public JitState getJitState() {
+        return jit;
+    }
+
+    public Chunk getChunk() {
+        int importsVersion = functionContext == null ? 0 : functionContext.getImportsVersion();
+        VersionedChunk compiled = chunk;
+        if (compiled == null || compiled.importsVersion() != importsVersion) {
+            compiled = new VersionedChunk(BytecodeCompiler.compile(this), importsVersion);
+            chunk = compiled;
+        }
+        return compiled.chunk();
+    }
+
+    /**
+     * runs the statements of this function, with its arguments already put in a frame made for it
+     * a call in return position doesn't recurse, it replaces this call (so recursing to iterate doesn't use up the stack)
+     */
+    public ASTNode call(Frame frame) {
         FunctionLiteral fLit = this;
+        while (true) {
+            CompiledFunction compiled = fLit.jit.enter(frame);
+            if (compiled != null) return new NumberValue(compiled.call(frame));
+            if (VM.isEnabled()) return VM.run(fLit.getChunk(), fLit.functionContext, frame);
+
+            // note: the expressions in the function literal, are to be evaluated in that function's context
+            ASTNode result = fLit.runStatements(frame);
+            if (result == null) return UnitValue.UNIT;
+            if (!(result instanceof FunctionCall tailCall) || tailCall.getBuiltin(fLit.functionContext) != null)
+                return result.interpret(fLit.functionContext, frame);
+
+            GraphNode context = fLit.functionContext;
+            fLit = tailCall.callee(context, frame);
+            frame = tailCall.calleeFrame(fLit, context, frame);
+        }
+    }
+
+    /**
+     * same as call, for functions that return a number, which then doesn't have to be boxed
+     */
+    public double callNumber(Frame frame) {
+        FunctionLiteral fLit = this;
+        while (true) {
+            CompiledFunction compiled = fLit.jit.enter(frame);
+            if (compiled != null) return compiled.call(frame);
+            // straight to the VM, going through call() would count this call towards compiling a second time
+            if (VM.isEnabled()) return VM.run(fLit.getChunk(), fLit.functionContext, frame).interpretNumber(fLit.functionContext, frame);
+
+            ASTNode result = fLit.runStatements(frame);
+            // no return statement, so the function results in unit, which isn't a number
+            if (result == null) return UnitValue.UNIT.interpretNumber(fLit.functionContext, frame);
+            if (!(result instanceof FunctionCall tailCall) || tailCall.getBuiltin(fLit.functionContext) != null)
+                return result.interpretNumber(fLit.functionContext, frame);
+
+            GraphNode context = fLit.functionContext;
+            fLit = tailCall.callee(context, frame);
+            frame = tailCall.calleeFrame(fLit, context, frame);
+        }
+    }
 
-        // statements
-        for (Statement stmt : fLit.getStatements()) {
-            if (stmt.getStatement() instanceof ReturnStmt) {
-                // note: the expressions in the function literal, are to be evaluated in that function's context
-                return stmt.interpret(fLit.getFunctionContext(), additionalContext);
-            } else {
-                stmt.interpret(fLit.getFunctionContext(), additionalContext);
+    /**
+     * runs the statements up until the return statement
+     * @return the expression in return position, with the ifs around it already decided (but not evaluated yet),
+     * or null if there is no return statement
+     */
+    private ASTNode runStatements(Frame frame) {
+        for (Statement stmt : statements) {
+            if (stmt.getStatement() instanceof ReturnStmt returnStmt) {
+                ASTNode result = returnStmt.getReturnExpr();
+                while (true) {
+                    if (result instanceof ParenExpr paren) result = paren.getExpr();
+                    else if (result instanceof IfExpr ifExpr)
+                        result = ifExpr.condition.interpretBool(functionContext, frame) ? ifExpr.trueCaseExpr : ifExpr.falseCaseExpr;
+                    else return result;
+                }
             }
+            stmt.interpret(functionContext, frame);
         }
-        return new UnitLiteral();
+        return null;
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        // the captured context is runtime state, a decoded function captures its own on first use
+        out.writeTag(AstTag.FUNCTION_LITERAL);
+        out.writeStrings(paramIdentifiers);
+        out.writeNodes(statements);
+    }
+
+    public static FunctionLiteral decode(AstReader in) {
+        FunctionLiteral function = new FunctionLiteral();
+        function.paramIdentifiers.addAll(in.readStrings());
+        for (ASTNode statement : in.readNodes()) function.statements.add((Statement) statement);
+        return function;
     }
 }
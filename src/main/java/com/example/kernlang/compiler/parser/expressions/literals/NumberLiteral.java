@@ -1,14 +1,23 @@
 package com.example.kernlang.compiler.parser.expressions.literals;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class NumberLiteral implements ASTNode {
     Double number;
+    // what this literal evaluates to, made once instead of on every evaluation
+    private NumberValue value;
 
     public NumberLiteral() {}
 
@@ -33,38 +42,28 @@ public class NumberLiteral implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        number = 0.0;
-        if (!input2.equals("") && isDigit(input2.charAt(0))) {
-            while (!input2.equals("") && isDigit(input2.charAt(0))) {
-                number *= 10;
-                number += input2.charAt(0) - '0';
-                input2 = input2.substring(1);
-            }
-            if (!input2.equals("") && input2.charAt(0) == '.'){
-                input2 = input2.substring(1);
-                int divider = 10;
-                double decimal;
-                while (isDigit(input2.charAt(0))) {
-                    decimal = input2.charAt(0) - '0';
-                    number += decimal / divider;
-                    divider *= 10;
-                    input2 = input2.substring(1);
-                }
-            }
-            return new ParseResult(Optional.of(this), input2, "");
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.check(position, TokenKind.NUMBER)) {
+            number = source.numberValue(position);
+            return new ParseResult(Optional.of(this), position + 1, "");
         }
-        return new ParseResult(Optional.empty(), input, "failed to parse number");
+        return new ParseResult(Optional.empty(), position, "failed to parse number");
     }
 
-    private boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
+    @Override
+    public void resolve(Scope scope) {
+        // literals don't refer to anything
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        return this;
+    public NumberValue interpret(GraphNode contextNode, Frame frame) {
+        if (value == null) value = new NumberValue(number);
+        return value;
+    }
+
+    @Override
+    public double interpretNumber(GraphNode contextNode, Frame frame) {
+        return number;
     }
 
     @Override
@@ -79,4 +78,14 @@ public class NumberLiteral implements ASTNode {
 
         return this.number.equals(((NumberLiteral) obj).number);
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.NUMBER_LITERAL);
+        out.writeDouble(number);
+    }
+
+    public static NumberLiteral decode(AstReader in) {
+        return new NumberLiteral(in.readDouble());
+    }
 }
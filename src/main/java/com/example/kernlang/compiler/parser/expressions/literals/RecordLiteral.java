@@ -1,24 +1,45 @@
 package com.example.kernlang.compiler.parser.expressions.literals;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.Expr;
-import com.example.kernlang.compiler.parser.expressions.Literal;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.Shape;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * A record keeps its field values in a flat array, which slot holds which field is described by its Shape.
+ * Records with the same fields share their shape, so a RecordAccess that keeps seeing the same shape
+ * can remember the slot instead of looking the field name up every time.
+ * The record literal in the syntax tree is never changed, interpreting it makes a new record
+ * holding the values of its fields, which is what assignments to fields change.
+ * Copies of a record share its values until one of them changes a field (copy-on-write), like arrays do.
+ */
 public class RecordLiteral implements ASTNode {
 
-    private final ArrayList<RecordField> recordFields = new ArrayList<>();
+    private Shape shape = Shape.of(List.of());
+    private ASTNode[] values = new ASTNode[0];
+    // records made by interpreting a literal, their fields hold values already
+    private boolean evaluated = false;
+    // set when another record uses the same values, whichever one writes first gets its own copy
+    private boolean sharedValues = false;
 
     @Override
     public String toString(String indent) {
         String result = "\n" + indent + "record:" + "\n";
-        for (RecordField rf : recordFields) {
-            result += rf.toString(indent + "\t") + "\n";
+        for (int i = 0; i < values.length; i++) {
+            result += indent + "\t" + "recordfield:\n" + indent + "\t\t" + "identifier: " + shape.getFieldName(i) + "\n" +
+                    indent + "\t\t" + "expression:" + values[i].toString(indent + "\t\t\t") + "\n";
         }
         return result;
     }
@@ -26,117 +47,124 @@ public class RecordLiteral implements ASTNode {
     @Override
     public ASTNode deepcopy() {
         RecordLiteral result = new RecordLiteral();
-        for (RecordField f : recordFields) result.addRecordField(f);
+        result.shape = shape;
+        result.evaluated = evaluated;
+        result.values = values;
+        result.sharedValues = true;
+        sharedValues = true;
         return result;
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String originalInput = input;
-        input = input.stripLeading();
-
-        ParseResult result;
-
-        if (input.startsWith("{")) {
-            input = input.substring(1).stripLeading();
-            while (!input.startsWith("}")) {
-                String fieldName = "";
-                if (isAlpha(input.charAt(0))) fieldName += input.charAt(0);
-                else return new ParseResult(Optional.empty(), originalInput, "failed to parse record literal");
-
-                int i = 1;
-                while (isAlpha(input.charAt(i)) || isDigit(input.charAt(i))) {
-                    fieldName += input.charAt(i);
-                    i++;
-                }
-                input = input.substring(i).stripLeading();
-
-                if (!input.startsWith("=")) return new ParseResult(Optional.empty(), originalInput, "failed to parse record literal");
-                input = input.substring(1).stripLeading();
-
-                ParseResult exprResult = new Expr().parse(input);
+    public ParseResult parse(SourceBuffer source, int position) {
+        int pos = position;
+        ArrayList<String> fieldNames = new ArrayList<>();
+        ArrayList<ASTNode> fieldValues = new ArrayList<>();
+
+        if (source.check(pos, TokenKind.LEFT_BRACE)) {
+            pos++;
+            while (!source.check(pos, TokenKind.RIGHT_BRACE)) {
+                if (!source.check(pos, TokenKind.IDENTIFIER)) return new ParseResult(Optional.empty(), position, "failed to parse record literal");
+                String fieldName = source.text(pos);
+                pos++;
+
+                if (!source.check(pos, TokenKind.EQUAL)) return new ParseResult(Optional.empty(), position, "failed to parse record literal");
+
+                ParseResult exprResult = new Expr().parse(source, pos + 1);
                 if (exprResult.syntaxNode().isPresent()) {
-                    input = exprResult.leftOverString().stripLeading();
-                    recordFields.add(new RecordField(fieldName, exprResult.syntaxNode().get()));
-                } else return new ParseResult(Optional.empty(), originalInput, "failed to parse record literal");
+                    pos = exprResult.position();
+                    fieldNames.add(fieldName);
+                    fieldValues.add(exprResult.syntaxNode().get());
+                } else return new ParseResult(Optional.empty(), position, "failed to parse record literal");
 
             }
-            input = input.substring(1).stripLeading();
-        } else return new ParseResult(Optional.empty(), originalInput, "failed to parse record literal");
-        return new ParseResult(Optional.of(this), input, "");
+            pos++;
+        } else return new ParseResult(Optional.empty(), position, "failed to parse record literal");
+
+        shape = Shape.of(fieldNames);
+        values = fieldValues.toArray(new ASTNode[0]);
+        return new ParseResult(Optional.of(this), pos, "");
     }
 
     @Override
-    public ASTNode interpret(GraphNode context, HashMap<String, ASTNode> additionalContext) {
-        for (RecordField field : recordFields) {
-            field.expr = field.expr.interpret(context, additionalContext);
-        }
-        return this;
+    public void resolve(Scope scope) {
+        for (ASTNode value : values) value.resolve(scope);
     }
 
-    public ASTNode getField(String fieldName) {
-        for (RecordField field : this.recordFields) {
-            if (field.identifier.equals(fieldName)) return field.expr;
+    @Override
+    public ASTNode interpret(GraphNode context, Frame frame) {
+        if (evaluated) return this;
+        RecordLiteral result = new RecordLiteral();
+        result.shape = shape;
+        result.evaluated = true;
+        result.values = new ASTNode[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result.values[i] = values[i].interpret(context, frame);
         }
-        return null;
+        return result;
     }
 
-    public void setField(String fieldName, ASTNode value) {
-        for (RecordField field : this.recordFields) {
-            if (field.identifier.equals(fieldName)) {
-                field.expr = value;
-                break;
-            }
-        }
+    public Shape getShape() {
+        return shape;
     }
 
-    public void addRecordField(String identifier, Literal expr) {
-        this.recordFields.add(new RecordField(identifier, expr));
+    public ASTNode getSlot(int slot) {
+        ASTNode value = values[slot];
+        if (sharedValues && (value instanceof ArrayLiteral || value instanceof RecordLiteral)) {
+            // whoever gets this field may change it, which mustn't show up in the other records using the values
+            ownValues();
+            value = values[slot];
+        }
+        return value;
     }
 
-    public void addRecordField(RecordField f) {
-        this.recordFields.add(f);
+    public void setSlot(int slot, ASTNode value) {
+        ownValues();
+        values[slot] = value;
     }
 
-    public ArrayList<RecordField> getRecordFields() {
-        return recordFields;
+    public ASTNode getField(String fieldName) {
+        int slot = shape.slotOf(fieldName);
+        return slot < 0 ? null : getSlot(slot);
     }
 
-    public static class RecordField {
-        private final String identifier;
-        private ASTNode expr;
-
-        public RecordField deepcopy() {
-            return new RecordField(identifier, expr.deepcopy());
-        }
-
-        public RecordField(String identifier, ASTNode expr) {
-            this.identifier = identifier;
-            this.expr = expr;
-        }
-
-        public String toString(String indent) {
-            return indent + "recordfield:\n" + indent + "\t" + "identifier: " + identifier + "\n" +
-                    indent + "\t" + "expression:" + expr.toString(indent + "\t\t");
-        }
-
-        public ASTNode getL() {
-            return expr;
-        }
-
-        public String getIdentifier() {
-            return this.identifier;
-        }
+    public void setField(String fieldName, ASTNode value) {
+        int slot = shape.slotOf(fieldName);
+        if (slot >= 0) setSlot(slot, value);
+    }
 
+    /**
+     * copies the values if other records still use them, so changing a field won't change those records
+     */
+    private void ownValues() {
+        if (!sharedValues) return;
+        ASTNode[] result = new ASTNode[values.length];
+        // arrays and records in the fields share their own store in turn
+        for (int i = 0; i < values.length; i++) result[i] = values[i].deepcopy();
+        values = result;
+        sharedValues = false;
     }
 
-    private boolean isAlpha(char c) {
-        return (c >= 'a' && c <= 'z') ||
-                (c >= 'A' && c <= 'Z') ||
-                c == '_';
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.RECORD_LITERAL);
+        out.writeInt(values.length);
+        for (int i = 0; i < values.length; i++) {
+            out.writeString(shape.getFieldName(i));
+            out.writeNode(values[i]);
+        }
     }
 
-    private boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
+    public static RecordLiteral decode(AstReader in) {
+        RecordLiteral record = new RecordLiteral();
+        int size = in.readInt();
+        ArrayList<String> fieldNames = new ArrayList<>();
+        record.values = new ASTNode[size];
+        for (int i = 0; i < size; i++) {
+            fieldNames.add(in.readString());
+            record.values[i] = in.readNode();
+        }
+        record.shape = Shape.of(fieldNames);
+        return record;
     }
 }
@@ -1,10 +1,15 @@
 package com.example.kernlang.compiler.parser.expressions.literals;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.UnitValue;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class UnitLiteral implements ASTNode {
@@ -21,15 +26,24 @@ public class UnitLiteral implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("unit")) return new ParseResult(Optional.of(this), input2.substring(4).stripLeading(), "");
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.isKeyword(position, "unit")) return new ParseResult(Optional.of(this), position + 1, "");
 
-        else return new ParseResult(Optional.empty(), input, "failed to parse unit literal");
+        else return new ParseResult(Optional.empty(), position, "failed to parse unit literal");
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        return this;
+    public void resolve(Scope scope) {
+        // literals don't refer to anything
+    }
+
+    @Override
+    public UnitValue interpret(GraphNode contextNode, Frame frame) {
+        return UnitValue.UNIT;
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.UNIT_LITERAL);
     }
 }
@@ -1,65 +1,137 @@
 package com.example.kernlang.compiler.parser.language_extensions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
-import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
-import com.example.kernlang.compiler.parser.expressions.literals.UnitLiteral;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.parser.expressions.Expr;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
 import com.example.kernlang.compiler.parser.statements.Statement;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.UnitValue;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Optional;
 
 /**
- * needs to be added as a clause to Statement
+ * for i = <expr> to <expr> [step <expr>] <statement or block of statements>
+ * The bounds and the step are evaluated once, before the first iteration, and both bounds are included.
+ * The counter is optional (for 1 to 10 ...), when there is one it lives in a slot of the function's frame,
+ * where it is stored as an unboxed number so iterating doesn't allocate anything.
  */
-
 public class ForLoop implements ASTNode {
-    int start, end;
-    Statement stmt;
+    // null when the loop has no counter
+    String counter;
+    ASTNode start, end;
+    // null means a step of 1
+    ASTNode step;
+    ArrayList<Statement> body = new ArrayList<>();
+
+    // the frame slot of the counter, -1 if there is none (or the loop isn't inside a function)
+    private int slot = -1;
+    private FunctionLiteral resolvedFunction;
+
     @Override
     public String toString(String indent) {
-        return "\n\t" + indent + "for loop:\n" + stmt.toString(indent + "\t");
+        String result = "\n\t" + indent + "for loop:" +
+                (counter == null ? "" : "\n\t\t" + indent + "counter: " + counter) +
+                "\n\t\t" + indent + "from:" + start.toString(indent + "\t\t\t") +
+                "\n\t\t" + indent + "to:" + end.toString(indent + "\t\t\t") +
+                (step == null ? "" : "\n\t\t" + indent + "step:" + step.toString(indent + "\t\t\t"));
+        for (Statement stmt : body) result += stmt.toString(indent + "\t");
+        return result;
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("for")) {
-            input2 = input2.substring(3).stripLeading();
-            ParseResult startRes = new NumberLiteral().parse(input2);
-            if (startRes.syntaxNode().isPresent()) {
-                start = ((NumberLiteral)(startRes.syntaxNode().get())).getNumber().intValue();
-                input2 = startRes.leftOverString().stripLeading();
-                if (input2.startsWith("to")) {
-                    input2 = input2.substring(2).stripLeading();
-                    ParseResult endRes = new NumberLiteral().parse(input2);
-                    if (endRes.syntaxNode().isPresent()) {
-                        end = ((NumberLiteral)(endRes.syntaxNode().get())).getNumber().intValue();
-                        input2 = endRes.leftOverString().stripLeading();
-                        ParseResult stmtResult = new Statement().parse(input2);
-                        if (stmtResult.syntaxNode().isPresent()) {
-                            stmt = (Statement) stmtResult.syntaxNode().get();
-                            return new ParseResult(
-                                    Optional.of(this),
-                                    stmtResult.leftOverString(),
-                                    ""
-                            );
-                        }
-                    }
-                }
-            }
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (!source.isKeyword(position, "for")) return new ParseResult(Optional.empty(), position, "failed to parse for loop");
+        int pos = position + 1;
+
+        if (source.check(pos, TokenKind.IDENTIFIER) && source.check(pos + 1, TokenKind.EQUAL)) {
+            counter = source.text(pos);
+            pos += 2;
+        }
+
+        ParseResult startRes = new Expr().parse(source, pos);
+        if (startRes.syntaxNode().isEmpty() || !source.isKeyword(startRes.position(), "to"))
+            return new ParseResult(Optional.empty(), position, "failed to parse for loop");
+        start = startRes.syntaxNode().get();
+
+        ParseResult endRes = new Expr().parse(source, startRes.position() + 1);
+        if (endRes.syntaxNode().isEmpty()) return new ParseResult(Optional.empty(), position, "failed to parse for loop");
+        end = endRes.syntaxNode().get();
+        pos = endRes.position();
+
+        if (source.isKeyword(pos, "step")) {
+            ParseResult stepRes = new Expr().parse(source, pos + 1);
+            if (stepRes.syntaxNode().isEmpty()) return new ParseResult(Optional.empty(), position, "failed to parse for loop");
+            step = stepRes.syntaxNode().get();
+            pos = stepRes.position();
+        }
+
+        // a block of statements, or else a single statement (which could start with a '{' itself)
+        int blockEnd = parseBlock(source, pos);
+        if (blockEnd >= 0) return new ParseResult(Optional.of(this), blockEnd, "");
+        body.clear();
+
+        ParseResult stmtResult = new Statement().parse(source, pos);
+        if (stmtResult.syntaxNode().isEmpty()) return new ParseResult(Optional.empty(), position, "failed to parse for loop");
+        body.add((Statement) stmtResult.syntaxNode().get());
+        return new ParseResult(Optional.of(this), stmtResult.position(), "");
+    }
+
+    /**
+     * @return the position after the block, or -1 if there is no block of statements here
+     */
+    private int parseBlock(SourceBuffer source, int position) {
+        if (!source.check(position, TokenKind.LEFT_BRACE)) return -1;
+        int pos = position + 1;
+        while (!source.check(pos, TokenKind.RIGHT_BRACE)) {
+            ParseResult stmtResult = new Statement().parse(source, pos);
+            if (stmtResult.syntaxNode().isEmpty()) return -1;
+            body.add((Statement) stmtResult.syntaxNode().get());
+            pos = stmtResult.position();
         }
+        return pos + 1;
+    }
+
+    @Override
+    public void resolve(Scope scope) {
+        start.resolve(scope);
+        end.resolve(scope);
+        if (step != null) step.resolve(scope);
 
-        return new ParseResult(Optional.empty(), input, "failed to parse for loop");
+        resolvedFunction = scope.getFunction();
+        Scope bodyScope = scope;
+        if (counter != null) {
+            bodyScope = scope.declareLocal(counter);
+            slot = bodyScope.slotOf(counter);
+        }
+        for (Statement stmt : body) stmt.resolve(bodyScope);
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        for (int i = start; i <= end; i++) {
-            stmt.interpret(contextNode, additionalContext);
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
+        int from = (int) start.interpretNumber(contextNode, frame);
+        int to = (int) end.interpretNumber(contextNode, frame);
+        int by = step == null ? 1 : (int) step.interpretNumber(contextNode, frame);
+        if (by == 0) {
+            System.out.println("for loop with a step of 0 would never end");
+            return UnitValue.UNIT;
+        }
+        // the counter can only be stored in a frame made for the function it was resolved against
+        int counterSlot = frame.getFunction() == resolvedFunction ? slot : -1;
+
+        for (int i = from; by > 0 ? i <= to : i >= to; i += by) {
+            if (counterSlot >= 0) frame.setNumber(counterSlot, i);
+            for (Statement stmt : body) stmt.interpret(contextNode, frame);
         }
-        return new UnitLiteral();
+        return UnitValue.UNIT;
     }
 
     @Override
@@ -67,4 +139,25 @@ public class ForLoop implements ASTNode {
         // no one's gonna make a copy of this
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.FOR_LOOP);
+        out.writeString(counter == null ? "" : counter);
+        out.writeNode(start);
+        out.writeNode(end);
+        out.writeNode(step);
+        out.writeNodes(body);
+    }
+
+    public static ForLoop decode(AstReader in) {
+        ForLoop forLoop = new ForLoop();
+        String counter = in.readString();
+        forLoop.counter = counter.isEmpty() ? null : counter;
+        forLoop.start = in.readNode();
+        forLoop.end = in.readNode();
+        forLoop.step = in.readNode();
+        for (ASTNode stmt : in.readNodes()) forLoop.body.add((Statement) stmt);
+        return forLoop;
+    }
 }
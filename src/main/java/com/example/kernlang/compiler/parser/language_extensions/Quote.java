@@ -1,11 +1,17 @@
 package com.example.kernlang.compiler.parser.language_extensions;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.Expr;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 /**
@@ -20,21 +26,24 @@ public class Quote implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("#")) {
-            input2 = input2.substring(1).stripLeading();
-            ParseResult parseResult = new Expr().parse(input2);
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.check(position, TokenKind.HASH)) {
+            ParseResult parseResult = new Expr().parse(source, position + 1);
             if (parseResult.syntaxNode().isPresent()) {
                 quotedExpr = parseResult.syntaxNode().get();
-                return new ParseResult(Optional.of(this), parseResult.leftOverString().stripLeading(), "");
+                return new ParseResult(Optional.of(this), parseResult.position(), "");
             }
         }
-        return new ParseResult(Optional.empty(), input, "failed to parse quote expr");
+        return new ParseResult(Optional.empty(), position, "failed to parse quote expr");
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
+    public void resolve(Scope scope) {
+        quotedExpr.resolve(scope);
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
         return quotedExpr;
     }
 
@@ -43,4 +52,16 @@ public class Quote implements ASTNode {
         // no one's gonna make a copy of this
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.QUOTE);
+        out.writeNode(quotedExpr);
+    }
+
+    public static Quote decode(AstReader in) {
+        Quote quote = new Quote();
+        quote.quotedExpr = in.readNode();
+        return quote;
+    }
 }
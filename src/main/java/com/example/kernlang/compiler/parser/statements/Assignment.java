@@ -2,15 +2,21 @@ package com.example.kernlang.compiler.parser.statements;
 
 import com.example.kernlang.codebase_viewer.graph.GraphEdge;
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+import com.example.kernlang.compiler.lexer.TokenKind;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.ArrayAccess;
 import com.example.kernlang.compiler.parser.expressions.Expr;
 import com.example.kernlang.compiler.parser.expressions.RecordAccess;
 import com.example.kernlang.compiler.parser.expressions.IdentifierExpr;
-import com.example.kernlang.compiler.parser.expressions.literals.UnitLiteral;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.UnitValue;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class Assignment implements ASTNode {
@@ -34,81 +40,82 @@ public class Assignment implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        ParseResult recordAccessParseRes = new RecordAccess().parse(input2);
+    public ParseResult parse(SourceBuffer source, int position) {
+        ParseResult recordAccessParseRes = new RecordAccess().parse(source, position);
         if (recordAccessParseRes.syntaxNode().isPresent()) {
             assignedObj = recordAccessParseRes.syntaxNode().get();
-            input2 = recordAccessParseRes.leftOverString().stripLeading();
-            if (input2.startsWith("<-")) {
-                input2 = input2.substring(2).stripLeading();
-                ParseResult exprParseRes = new Expr().parse(input2);
-                if (exprParseRes.syntaxNode().isPresent()) {
-                    expr = exprParseRes.syntaxNode().get();
-                    input2 = exprParseRes.leftOverString().stripLeading();
-                    return new ParseResult(Optional.of(this), input2, "");
-                }
-            }
+            return parseAssignedExpr(source, recordAccessParseRes.position(), position);
         } else {
-            ParseResult arrayParseRes = new ArrayAccess().parse(input2);
+            ParseResult arrayParseRes = new ArrayAccess().parse(source, position);
             if (arrayParseRes.syntaxNode().isPresent()) {
                 assignedObj = arrayParseRes.syntaxNode().get();
-                input2 = arrayParseRes.leftOverString().stripLeading();
-                if (input2.startsWith("<-")) {
-                    input2 = input2.substring(2).stripLeading();
-                    ParseResult exprParseRes = new Expr().parse(input2);
-                    if (exprParseRes.syntaxNode().isPresent()) {
-                        expr = exprParseRes.syntaxNode().get();
-                        input2 = exprParseRes.leftOverString().stripLeading();
-                        return new ParseResult(Optional.of(this), input2, "");
-                    }
-                }
+                return parseAssignedExpr(source, arrayParseRes.position(), position);
             } else {
-                ParseResult identParseRes = new IdentifierExpr().parse(input2);
+                ParseResult identParseRes = new IdentifierExpr().parse(source, position);
                 if (identParseRes.syntaxNode().isPresent()) {
                     assignedObj = identParseRes.syntaxNode().get();
-                    input2 = identParseRes.leftOverString().stripLeading();
-                    if (input2.startsWith("<-")) {
-                        input2 = input2.substring(2).stripLeading();
-                        ParseResult exprParseRes = new Expr().parse(input2);
-                        if (exprParseRes.syntaxNode().isPresent()) {
-                            expr = exprParseRes.syntaxNode().get();
-                            input2 = exprParseRes.leftOverString().stripLeading();
-                            return new ParseResult(Optional.of(this), input2, "");
-                        }
-                    }
+                    return parseAssignedExpr(source, identParseRes.position(), position);
                 }
             }
         }
 
 
-        return new ParseResult(Optional.empty(), input,"failed to parse assignment");
+        return new ParseResult(Optional.empty(), position,"failed to parse assignment");
+    }
+
+    /**
+     * parses the "<- expr" part of the assignment, which follows the assigned object
+     */
+    private ParseResult parseAssignedExpr(SourceBuffer source, int pos, int startPosition) {
+        if (source.check(pos, TokenKind.LEFT_ARROW)) {
+            ParseResult exprParseRes = new Expr().parse(source, pos + 1);
+            if (exprParseRes.syntaxNode().isPresent()) {
+                expr = exprParseRes.syntaxNode().get();
+                return new ParseResult(Optional.of(this), exprParseRes.position(), "");
+            }
+        }
+        return new ParseResult(Optional.empty(), startPosition,"failed to parse assignment");
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        String ident = null;
-        if (assignedObj instanceof IdentifierExpr) {
-            ident = ((IdentifierExpr)assignedObj).getIdentifier();
-            for (GraphEdge edge : contextNode.getImports()) {
-                if (edge.getEndNode().name.equals(ident)) {
-                    // note: the expressions in the function literal, are to be evaluated in that function's (callee's) context
-                    edge.getEndNode().setAstExpr(expr.interpret(contextNode, additionalContext).deepcopy());
-                }
+    public void resolve(Scope scope) {
+        assignedObj.resolve(scope);
+        expr.resolve(scope);
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
+        if (assignedObj instanceof IdentifierExpr identifierExpr && identifierExpr.findImport(contextNode) == null) {
+            // nothing to assign to, so the expression doesn't even get evaluated
+            return UnitValue.UNIT;
+        }
+
+        // note: the expressions in the function literal, are to be evaluated in that function's (callee's) context
+        assign(expr.interpret(contextNode, frame), contextNode, frame);
+        return UnitValue.UNIT;
+    }
+
+    /**
+     * stores the (already evaluated) value of the expression in whatever gets assigned to
+     * the stored value is a copy, but arrays of primitives only get copied for real once either copy changes
+     */
+    public void assign(ASTNode value, GraphNode contextNode, Frame frame) {
+        if (assignedObj instanceof IdentifierExpr identifierExpr) {
+            GraphNode importNode = identifierExpr.findImport(contextNode);
+            if (importNode != null) {
+                importNode.setAstExpr(value.deepcopy());
             }
         } else if (assignedObj instanceof RecordAccess recordAccess) {
             // this means that we assign to a record field
             // thus, we're not changing the ASTNode of a GraphNode for a new one
             // we're making an update to the ASTNode's content
-            recordAccess.assignValue(expr.interpret(contextNode, additionalContext).deepcopy(), contextNode, additionalContext);
+            recordAccess.assignValue(value.deepcopy(), contextNode, frame);
         } else if (assignedObj instanceof ArrayAccess arrayAccess) {
             // this means that we assign to a record field
             // thus, we're not changing the ASTNode of a GraphNode for a new one
             // we're making an update to the ASTNode's content
-            arrayAccess.assignValue(expr.interpret(contextNode, additionalContext).deepcopy(), contextNode, additionalContext);
+            arrayAccess.assignValue(value.deepcopy(), contextNode, frame);
         }
-
-        return new UnitLiteral();
     }
 
     @Override
@@ -116,4 +123,18 @@ public class Assignment implements ASTNode {
         // no one's gonna make a copy of this
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.ASSIGNMENT);
+        out.writeNode(assignedObj);
+        out.writeNode(expr);
+    }
+
+    public static Assignment decode(AstReader in) {
+        Assignment assignment = new Assignment();
+        assignment.assignedObj = in.readNode();
+        assignment.expr = in.readNode();
+        return assignment;
+    }
 }
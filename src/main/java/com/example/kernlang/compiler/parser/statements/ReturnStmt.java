@@ -1,11 +1,16 @@
 package com.example.kernlang.compiler.parser.statements;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.expressions.Expr;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 public class ReturnStmt implements ASTNode {
@@ -23,24 +28,31 @@ public class ReturnStmt implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
-        String input2 = input.stripLeading();
-        if (input2.startsWith("return")) {
-            input2 = input2.substring(6).stripLeading();
-            ParseResult parseRes = new Expr().parse(input2);
+    public ParseResult parse(SourceBuffer source, int position) {
+        if (source.isKeyword(position, "return")) {
+            ParseResult parseRes = new Expr().parse(source, position + 1);
             if (parseRes.syntaxNode().isPresent()) {
                 returnExpr = parseRes.syntaxNode().get();
-                input2 = parseRes.leftOverString().stripLeading();
-                return new ParseResult(Optional.of(this), input2, "");
+                return new ParseResult(Optional.of(this), parseRes.position(), "");
             }
         }
-        return new ParseResult(Optional.empty(), input, "failed to parse return statement");
+        return new ParseResult(Optional.empty(), position, "failed to parse return statement");
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
+    public void resolve(Scope scope) {
+        returnExpr.resolve(scope);
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
         // note: the expressions in the function literal, are to be evaluated in that function's context
-        return returnExpr.interpret(contextNode, additionalContext);
+        return returnExpr.interpret(contextNode, frame);
+    }
+
+    @Override
+    public double interpretNumber(GraphNode contextNode, Frame frame) {
+        return returnExpr.interpretNumber(contextNode, frame);
     }
 
     @Override
@@ -48,4 +60,16 @@ public class ReturnStmt implements ASTNode {
         // no one's gonna make a copy of this
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.RETURN);
+        out.writeNode(returnExpr);
+    }
+
+    public static ReturnStmt decode(AstReader in) {
+        ReturnStmt returnStmt = new ReturnStmt();
+        returnStmt.returnExpr = in.readNode();
+        return returnStmt;
+    }
 }
@@ -1,13 +1,18 @@
 package com.example.kernlang.compiler.parser.statements;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstReader;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
 import com.example.kernlang.compiler.parser.ASTNode;
 import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
 import com.example.kernlang.compiler.parser.language_extensions.ForLoop;
+import com.example.kernlang.compiler.resolver.Scope;
+import com.example.kernlang.compiler.runtime.Frame;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -32,21 +37,31 @@ public class Statement implements ASTNode {
     }
 
     @Override
-    public ParseResult parse(String input) {
+    public ParseResult parse(SourceBuffer source, int position) {
         for (Supplier<ASTNode> clause : clauses) {
-            ParseResult result = clause.get().parse(input);
+            ParseResult result = clause.get().parse(source, position);
             if (result.syntaxNode().isPresent()) {
                 expr = result.syntaxNode().get();
-                return new ParseResult(Optional.of(this), result.leftOverString(), "");
+                return new ParseResult(Optional.of(this), result.position(), "");
             }
 
         }
-        return new ParseResult(Optional.empty(), input, "failed to parse statement");
+        return new ParseResult(Optional.empty(), position, "failed to parse statement");
     }
 
     @Override
-    public ASTNode interpret(GraphNode contextNode, HashMap<String, ASTNode> additionalContext) {
-        return expr.interpret(contextNode, additionalContext);
+    public void resolve(Scope scope) {
+        expr.resolve(scope);
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
+        return expr.interpret(contextNode, frame);
+    }
+
+    @Override
+    public double interpretNumber(GraphNode contextNode, Frame frame) {
+        return expr.interpretNumber(contextNode, frame);
     }
 
     public ASTNode getStatement() {
@@ -64,4 +79,16 @@ public class Statement implements ASTNode {
         // no one's gonna make a copy of this
         return this;
     }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.STATEMENT);
+        out.writeNode(expr);
+    }
+
+    public static Statement decode(AstReader in) {
+        Statement statement = new Statement();
+        statement.expr = in.readNode();
+        return statement;
+    }
 }
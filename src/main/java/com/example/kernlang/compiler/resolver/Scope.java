@@ -0,0 +1,77 @@
+package com.example.kernlang.compiler.resolver;
+
+import com.example.kernlang.codebase_viewer.graph.GraphEdge;
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+
+import java.util.HashMap;
+
+/**
+ * What a name can refer to at some point in the code of a node, used by ASTNode.resolve() to bind identifiers.
+ * Inside a function body only that function's own parameters are visible (not those of enclosing functions),
+ * every other name refers to one of the imports of the node the code belongs to.
+ * Loop counters are added to the scope of the loop's body, in a slot of the frame after the parameters.
+ */
+public class Scope {
+    private final GraphNode contextNode;
+    private final FunctionLiteral function;
+    // names of loop counters in scope, with their slots
+    private final HashMap<String, Integer> locals;
+
+    public Scope(GraphNode contextNode) {
+        this(contextNode, null, new HashMap<>());
+    }
+
+    private Scope(GraphNode contextNode, FunctionLiteral function, HashMap<String, Integer> locals) {
+        this.contextNode = contextNode;
+        this.function = function;
+        this.locals = locals;
+    }
+
+    public Scope enterFunction(FunctionLiteral function) {
+        return new Scope(contextNode, function, new HashMap<>());
+    }
+
+    /**
+     * @return a scope in which the name refers to a new slot in the frame of the function,
+     * or this same scope outside of any function, where there is no frame to put it in
+     */
+    public Scope declareLocal(String name) {
+        if (function == null) return this;
+        HashMap<String, Integer> result = new HashMap<>(locals);
+        result.put(name, function.declareLocal());
+        return new Scope(contextNode, function, result);
+    }
+
+    public GraphNode getContextNode() {
+        return contextNode;
+    }
+
+    /**
+     * @return the function whose body is being resolved, or null outside of any function
+     */
+    public FunctionLiteral getFunction() {
+        return function;
+    }
+
+    /**
+     * @return the slot of the parameter or loop counter with this name, or -1 if it is neither
+     */
+    public int slotOf(String name) {
+        if (function == null) return -1;
+        Integer local = locals.get(name);
+        if (local != null) return local;
+        return function.getParamIdentifiers().indexOf(name);
+    }
+
+    /**
+     * @return the imported node with this name, or null if the context node doesn't import it
+     */
+    public GraphNode importOf(String name) {
+        if (contextNode == null) return null;
+        for (GraphEdge edge : contextNode.getImports()) {
+            if (edge.getEndNode().getName().equals(name)) return edge.getEndNode();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.kernlang.compiler.runtime;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+
+public class BoolValue extends Value {
+    public static final BoolValue TRUE = new BoolValue(true);
+    public static final BoolValue FALSE = new BoolValue(false);
+
+    private final boolean bool;
+
+    private BoolValue(boolean bool) {
+        this.bool = bool;
+    }
+
+    public static BoolValue of(boolean bool) {
+        return bool ? TRUE : FALSE;
+    }
+
+    public boolean getBool() {
+        return bool;
+    }
+
+    @Override
+    public boolean interpretBool(GraphNode contextNode, Frame frame) {
+        return bool;
+    }
+
+    @Override
+    public String toString(String indent) {
+        return "\n" + indent + bool;
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.BOOL_LITERAL);
+        out.writeBoolean(bool);
+    }
+}
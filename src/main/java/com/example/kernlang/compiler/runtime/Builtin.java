@@ -0,0 +1,25 @@
+package com.example.kernlang.compiler.runtime;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.parser.ASTNode;
+
+import java.util.List;
+
+/**
+ * A function implemented in Java, which Kern code calls just like a function literal.
+ * Builtins get their argument expressions unevaluated, so numbers can be evaluated without boxing them.
+ */
+@FunctionalInterface
+public interface Builtin {
+    /**
+     * @param args the argument expressions, to be evaluated in the caller's context and frame
+     */
+    ASTNode call(List<ASTNode> args, GraphNode context, Frame frame);
+
+    /**
+     * same as call, for builtins that return a number, which then doesn't have to be boxed
+     */
+    default double callNumber(List<ASTNode> args, GraphNode context, Frame frame) {
+        return call(args, context, frame).interpretNumber(context, frame);
+    }
+}
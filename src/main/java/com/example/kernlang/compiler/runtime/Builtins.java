@@ -0,0 +1,107 @@
+package com.example.kernlang.compiler.runtime;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.expressions.literals.ArrayLiteral;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The builtin functions, looked up by name.
+ * Calls to them get bound when resolving, as long as the name isn't a parameter or an import of the calling node.
+ * Native libraries can add their own builtins with register().
+ */
+public class Builtins {
+    // nodes are compiled (and so resolved) in parallel, so lookups happen from several threads at once
+    private static final ConcurrentHashMap<String, Builtin> builtins = new ConcurrentHashMap<>();
+
+    // the operands are truncated to integers first
+    public static final Builtin MOD = binary((a, b) -> (int) a % (int) b);
+
+    static {
+        register("mod", MOD);
+
+        register("sqrt", unary(Math::sqrt));
+        register("abs", unary(Math::abs));
+        register("floor", unary(Math::floor));
+        register("ceil", unary(Math::ceil));
+        register("round", unary(a -> (double) Math.round(a)));
+        register("sin", unary(Math::sin));
+        register("cos", unary(Math::cos));
+        register("min", binary(Math::min));
+        register("max", binary(Math::max));
+        register("pow", binary(Math::pow));
+
+        register("length", (args, context, frame) -> new NumberValue(array(args.get(0), context, frame).size()));
+        register("slice", (args, context, frame) -> {
+            ArrayLiteral array = array(args.get(0), context, frame);
+            int from = (int) args.get(1).interpretNumber(context, frame);
+            return array.slice(from, (int) args.get(2).interpretNumber(context, frame));
+        });
+        // arrays don't change by appending, the result is a new array
+        register("append", (args, context, frame) -> {
+            ArrayLiteral array = array(args.get(0), context, frame);
+            ArrayLiteral result = array.slice(0, array.size());
+            result.addElement(args.get(1).interpret(context, frame));
+            return result;
+        });
+
+        register("char_to_number", (args, context, frame) ->
+                new NumberValue(((CharValue) args.get(0).interpret(context, frame)).getChar()));
+        register("number_to_char", (args, context, frame) ->
+                CharValue.of((char) args.get(0).interpretNumber(context, frame)));
+    }
+
+    public static void register(String name, Builtin builtin) {
+        builtins.put(name, builtin);
+    }
+
+    /**
+     * @return the builtin with the given name, or null if there is none
+     */
+    public static Builtin lookup(String name) {
+        return builtins.get(name);
+    }
+
+    /**
+     * @return a builtin taking one number and resulting in a number, neither of which gets boxed
+     */
+    public static Builtin unary(DoubleUnaryOperator operator) {
+        return new Builtin() {
+            @Override
+            public ASTNode call(List<ASTNode> args, GraphNode context, Frame frame) {
+                return new NumberValue(callNumber(args, context, frame));
+            }
+
+            @Override
+            public double callNumber(List<ASTNode> args, GraphNode context, Frame frame) {
+                return operator.applyAsDouble(args.get(0).interpretNumber(context, frame));
+            }
+        };
+    }
+
+    /**
+     * @return a builtin taking two numbers and resulting in a number, none of which get boxed
+     */
+    public static Builtin binary(DoubleBinaryOperator operator) {
+        return new Builtin() {
+            @Override
+            public ASTNode call(List<ASTNode> args, GraphNode context, Frame frame) {
+                return new NumberValue(callNumber(args, context, frame));
+            }
+
+            @Override
+            public double callNumber(List<ASTNode> args, GraphNode context, Frame frame) {
+                double a = args.get(0).interpretNumber(context, frame);
+                return operator.applyAsDouble(a, args.get(1).interpretNumber(context, frame));
+            }
+        };
+    }
+
+    private static ArrayLiteral array(ASTNode arg, GraphNode context, Frame frame) {
+        return (ArrayLiteral) arg.interpret(context, frame);
+    }
+}
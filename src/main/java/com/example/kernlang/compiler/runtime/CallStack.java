@@ -0,0 +1,42 @@
+package com.example.kernlang.compiler.runtime;
+
+/**
+ * Kern code iterates by recursing. Calls in return position replace the call they're in
+ * (see FunctionLiteral.call, and TAIL_CALL for the VM),
+ * but every other call still takes up room on the stack of the thread running it.
+ * That's why Kern code runs on threads of its own, with a stack as big as the budget set here,
+ * instead of the JVM's default of a megabyte or so.
+ */
+public class CallStack {
+    // in megabytes, the memory only gets used once the recursion actually goes that deep
+    private static volatile long budget = Long.getLong("kern.stackBudget", 512);
+
+    public static void setBudget(long megabytes) {
+        budget = megabytes;
+    }
+
+    public static long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return a thread that runs the given Kern code, which stops with a message once its recursion outgrows the budget
+     */
+    public static Thread newThread(String name, Runnable code) {
+        return new Thread(null, () -> run(name, code), name, budget * 1024 * 1024);
+    }
+
+    /**
+     * runs Kern code on a thread made by newThread (e.g. a worker of a pool of them)
+     * @return false if the code stopped because its recursion outgrew the budget
+     */
+    public static boolean run(String name, Runnable code) {
+        try {
+            code.run();
+            return true;
+        } catch (StackOverflowError e) {
+            System.out.println(name + ": recursion went deeper than the stack budget of " + budget + "MB allows");
+            return false;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.kernlang.compiler.runtime;
+
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+
+public class CharValue extends Value {
+    // terminal apps pass a key around every tick, those are nearly always ascii
+    private static final CharValue[] ascii = new CharValue[128];
+
+    static {
+        for (char c = 0; c < ascii.length; c++) ascii[c] = new CharValue(c);
+    }
+
+    private final char character;
+
+    private CharValue(char character) {
+        this.character = character;
+    }
+
+    public static CharValue of(char character) {
+        if (character < ascii.length) return ascii[character];
+        return new CharValue(character);
+    }
+
+    public char getChar() {
+        return character;
+    }
+
+    @Override
+    public String toString(String indent) {
+        return "\n" + indent + "'" + character + "'";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CharValue other && character == other.character;
+    }
+
+    @Override
+    public int hashCode() {
+        return Character.hashCode(character);
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.CHAR_LITERAL);
+        out.writeChar(character);
+    }
+}
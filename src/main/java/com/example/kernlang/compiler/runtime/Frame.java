@@ -0,0 +1,74 @@
+package com.example.kernlang.compiler.runtime;
+
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+
+/**
+ * The arguments of a single function call, stored in a fixed-size array.
+ * The resolver gives every parameter of a function its own slot index,
+ * so reading a parameter is an array load instead of a lookup by name.
+ * Numbers can be stored unboxed, so passing the result of some arithmetic to a function doesn't allocate.
+ */
+public class Frame {
+    // for evaluating code that isn't inside any function
+    public static final Frame EMPTY = new Frame(null, 0);
+
+    // marks the slots whose value is in `numbers` instead
+    private static final ASTNode UNBOXED = new NumberValue(Double.NaN);
+
+    private final FunctionLiteral function;
+    private final ASTNode[] slots;
+    // only made once a number actually gets stored unboxed
+    private double[] numbers;
+
+    public Frame(FunctionLiteral function, int size) {
+        this.function = function;
+        this.slots = new ASTNode[size];
+    }
+
+    /**
+     * @return the function this frame belongs to, or null for the empty frame
+     */
+    public FunctionLiteral getFunction() {
+        return function;
+    }
+
+    public ASTNode get(int slot) {
+        if (slots[slot] == UNBOXED) {
+            // someone wants the number as a value after all, box it once and keep that
+            slots[slot] = new NumberValue(numbers[slot]);
+        }
+        return slots[slot];
+    }
+
+    public double getNumber(int slot) {
+        if (slots[slot] == UNBOXED) return numbers[slot];
+        return ((NumberValue) slots[slot]).getNumber();
+    }
+
+    /**
+     * @return whether the slot holds a number, boxed or not
+     */
+    public boolean isNumber(int slot) {
+        return slots[slot] == UNBOXED || slots[slot] instanceof NumberValue;
+    }
+
+    public void set(int slot, ASTNode value) {
+        slots[slot] = value;
+    }
+
+    public void setNumber(int slot, double number) {
+        if (numbers == null) numbers = new double[slots.length];
+        numbers[slot] = number;
+        slots[slot] = UNBOXED;
+    }
+
+    /**
+     * looks up the slot of a parameter by its name, for identifiers that weren't resolved against this frame's function
+     * @return the slot index, or -1 if the function has no such parameter
+     */
+    public int slotOf(String name) {
+        if (function == null) return -1;
+        return function.getParamIdentifiers().indexOf(name);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.kernlang.compiler.runtime;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+
+public class NumberValue extends Value {
+    private final double number;
+
+    public NumberValue(double number) {
+        this.number = number;
+    }
+
+    public double getNumber() {
+        return number;
+    }
+
+    @Override
+    public double interpretNumber(GraphNode contextNode, Frame frame) {
+        return number;
+    }
+
+    @Override
+    public String toString(String indent) {
+        return "\n" + indent + number;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof NumberValue other)) return false;
+        // same as Double.equals, so NaN equals itself
+        return Double.doubleToLongBits(number) == Double.doubleToLongBits(other.number);
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(number);
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.NUMBER_LITERAL);
+        out.writeDouble(number);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.kernlang.compiler.runtime;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The layout of a record: which slot of its value array holds which field.
+ * Shapes are shared, every record with the same field names (in the same order) gets the same Shape,
+ * so comparing two shapes is just comparing references.
+ */
+public class Shape {
+    // records get parsed on the compile workers, so shapes are made from several threads at once
+    private static final ConcurrentHashMap<List<String>, Shape> shapes = new ConcurrentHashMap<>();
+
+    private final String[] fieldNames;
+    private final HashMap<String, Integer> slots = new HashMap<>();
+
+    private Shape(List<String> fieldNames) {
+        this.fieldNames = fieldNames.toArray(new String[0]);
+        // with a field name appearing twice, the first one wins (like it did when fields were looked up one by one)
+        for (int i = 0; i < this.fieldNames.length; i++) slots.putIfAbsent(this.fieldNames[i], i);
+    }
+
+    public static Shape of(List<String> fieldNames) {
+        return shapes.computeIfAbsent(List.copyOf(fieldNames), Shape::new);
+    }
+
+    /**
+     * @return the slot holding the field, or -1 when records of this shape don't have it
+     */
+    public int slotOf(String fieldName) {
+        Integer slot = slots.get(fieldName);
+        return slot == null ? -1 : slot;
+    }
+
+    public String getFieldName(int slot) {
+        return fieldNames[slot];
+    }
+
+    public int size() {
+        return fieldNames.length;
+    }
+}
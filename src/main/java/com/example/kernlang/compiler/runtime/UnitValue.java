@@ -0,0 +1,21 @@
+package com.example.kernlang.compiler.runtime;
+
+import com.example.kernlang.compiler.cache.AstTag;
+import com.example.kernlang.compiler.cache.AstWriter;
+
+public class UnitValue extends Value {
+    // can't ever have a value other than unit anyways
+    public static final UnitValue UNIT = new UnitValue();
+
+    private UnitValue() {}
+
+    @Override
+    public String toString(String indent) {
+        return "\n" + indent + "unit";
+    }
+
+    @Override
+    public void encode(AstWriter out) {
+        out.writeTag(AstTag.UNIT_LITERAL);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.kernlang.compiler.runtime;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.resolver.Scope;
+
+import java.util.Optional;
+
+/**
+ * What evaluating an expression results in, as opposed to the literals the parser produces.
+ * A value evaluates to itself, so it can go anywhere a syntax node can:
+ * in a frame, in a record field or array element, or as the AST of a node that got assigned to.
+ * The subclasses hold their primitive unboxed, and they never change once made.
+ */
+public abstract class Value implements ASTNode {
+
+    @Override
+    public ASTNode deepcopy() {
+        // values never change, so a copy would be no different
+        return this;
+    }
+
+    @Override
+    public ParseResult parse(SourceBuffer source, int position) {
+        return new ParseResult(Optional.empty(), position, "values are made by the interpreter, not parsed");
+    }
+
+    @Override
+    public void resolve(Scope scope) {
+        // values don't refer to anything
+    }
+
+    @Override
+    public ASTNode interpret(GraphNode contextNode, Frame frame) {
+        return this;
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.kernlang.compiler.vm;
+
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.expressions.*;
+import com.example.kernlang.compiler.parser.expressions.literals.*;
+import com.example.kernlang.compiler.parser.statements.Assignment;
+import com.example.kernlang.compiler.parser.statements.ReturnStmt;
+import com.example.kernlang.compiler.parser.statements.Statement;
+import com.example.kernlang.compiler.runtime.Builtins;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Lowers the body of a (resolved) function literal into a Chunk for the VM.
+ * Arithmetic, conditions, parameters, calls and assignments become instructions,
+ * anything else is kept as a syntax node that the VM hands to the tree-walker (the EVAL instruction).
+ */
+public class BytecodeCompiler {
+    private final FunctionLiteral function;
+
+    private int[] code = new int[32];
+    private int size = 0;
+    private final ArrayList<ASTNode> constants = new ArrayList<>();
+    private final ArrayList<Double> numbers = new ArrayList<>();
+    private final ArrayList<Chunk.CallSite> callSites = new ArrayList<>();
+
+    private int valueDepth = 0, maxValueDepth = 0;
+    private int numberDepth = 0, maxNumberDepth = 0;
+
+    private BytecodeCompiler(FunctionLiteral function) {
+        this.function = function;
+    }
+
+    public static Chunk compile(FunctionLiteral function) {
+        return new BytecodeCompiler(function).compileBody();
+    }
+
+    private Chunk compileBody() {
+        for (Statement statement : function.getStatements()) {
+            ASTNode stmt = statement.getStatement();
+            if (stmt instanceof ReturnStmt returnStmt) {
+                returned(returnStmt.getReturnExpr());
+                // whatever comes after the return never runs
+                return toChunk();
+            } else if (stmt instanceof Assignment assignment) {
+                value(assignment.getExpr());
+                emit(Opcode.ASSIGN, constant(assignment));
+                valueDepth--;
+            } else {
+                value(stmt);
+                emit(Opcode.POP);
+                valueDepth--;
+            }
+        }
+        emit(Opcode.RETURN_UNIT);
+        return toChunk();
+    }
+
+    /**
+     * emits the code that pushes what the node evaluates to on the value stack
+     */
+    private void value(ASTNode node) {
+        if (node instanceof NumberLiteral || node instanceof CharLiteral || node instanceof BoolLiteral
+                || node instanceof UnitLiteral || node instanceof Value) {
+            // literals evaluate to the same value every time
+            emit(Opcode.CONST, constant(node.interpret(null, Frame.EMPTY)));
+            pushValue();
+        } else if (node instanceof AddSub || node instanceof MulDiv || isNegation(node) || isModCall(node)) {
+            number(node);
+            emit(Opcode.BOX_NUMBER);
+            numberDepth--;
+            pushValue();
+        } else if (node instanceof Comparison || node instanceof EqualityExpr) {
+            condition(node);
+            emit(Opcode.BOX_BOOL);
+            numberDepth--;
+            pushValue();
+        } else if (node instanceof ParenExpr paren) {
+            value(paren.getExpr());
+        } else if (node instanceof IfExpr ifExpr) {
+            branches(ifExpr, this::value);
+        } else if (node instanceof IdentifierExpr identifier && isOwnParameter(identifier)) {
+            emit(Opcode.LOAD, identifier.getSlot());
+            pushValue();
+        } else if (node instanceof FunctionCall call && call.getBuiltin(function.getFunctionContext()) == null) {
+            call(call, Opcode.CALL);
+            pushValue();
+        } else {
+            emit(Opcode.EVAL, constant(node));
+            pushValue();
+        }
+    }
+
+    /**
+     * emits the code that returns what the node evaluates to,
+     * calls in return position (through parentheses and ifs, like the tree-walker) become TAIL_CALLs
+     */
+    private void returned(ASTNode node) {
+        if (node instanceof ParenExpr paren) {
+            returned(paren.getExpr());
+        } else if (node instanceof IfExpr ifExpr) {
+            condition(ifExpr.condition);
+            int toFalseCase = emitJump(Opcode.JUMP_IF_FALSE);
+            numberDepth--;
+
+            // both cases return, so there is nothing to jump to after the true case
+            int valueDepthBefore = valueDepth, numberDepthBefore = numberDepth;
+            returned(ifExpr.trueCaseExpr);
+            patchJump(toFalseCase);
+            valueDepth = valueDepthBefore;
+            numberDepth = numberDepthBefore;
+            returned(ifExpr.falseCaseExpr);
+        } else if (node instanceof FunctionCall call && call.getBuiltin(function.getFunctionContext()) == null) {
+            call(call, Opcode.TAIL_CALL);
+        } else {
+            value(node);
+            emit(Opcode.RETURN);
+            valueDepth--;
+        }
+    }
+
+    /**
+     * emits the code that pushes the number the node evaluates to on the number stack
+     */
+    private void number(ASTNode node) {
+        if (node instanceof NumberLiteral literal) {
+            emit(Opcode.NUMBER, numberConstant(literal.getNumber()));
+            pushNumber();
+        } else if (node instanceof AddSub addSub) {
+            number(addSub.getLeft());
+            number(addSub.getRight());
+            emit(addSub.getOperator() == '+' ? Opcode.ADD : Opcode.SUBTRACT);
+            numberDepth--;
+        } else if (node instanceof MulDiv mulDiv) {
+            number(mulDiv.getLeft());
+            number(mulDiv.getRight());
+            emit(mulDiv.getOperator() == '*' ? Opcode.MULTIPLY : Opcode.DIVIDE);
+            numberDepth--;
+        } else if (isNegation(node)) {
+            number(((UnaryExpr) node).getExpr());
+            emit(Opcode.NEGATE);
+        } else if (isModCall(node)) {
+            ArrayList<ASTNode> args = ((FunctionCall) node).getArgs();
+            number(args.get(0));
+            number(args.get(1));
+            emit(Opcode.MOD);
+            numberDepth--;
+        } else if (node instanceof ParenExpr paren) {
+            number(paren.getExpr());
+        } else if (node instanceof IfExpr ifExpr) {
+            branches(ifExpr, this::number);
+        } else if (node instanceof IdentifierExpr identifier && isOwnParameter(identifier)) {
+            emit(Opcode.LOAD_NUMBER, identifier.getSlot());
+            pushNumber();
+        } else {
+            value(node);
+            emit(Opcode.UNBOX_NUMBER);
+            valueDepth--;
+            pushNumber();
+        }
+    }
+
+    /**
+     * emits the code that pushes the condition (1 for true, 0 for false) on the number stack
+     */
+    private void condition(ASTNode node) {
+        if (node instanceof Comparison comparison) {
+            number(comparison.getLeft());
+            number(comparison.getRight());
+            emit(comparison.getOperator() == '>' ? Opcode.GREATER : Opcode.LESS);
+            numberDepth--;
+        } else if (node instanceof EqualityExpr equality) {
+            value(equality.getLeft());
+            value(equality.getRight());
+            emit(equality.getOperator().equals("==") ? Opcode.EQUAL : Opcode.NOT_EQUAL);
+            valueDepth -= 2;
+            pushNumber();
+        } else if (node instanceof BoolLiteral literal) {
+            emit(Opcode.NUMBER, numberConstant(literal.getLiteral() ? 1 : 0));
+            pushNumber();
+        } else if (node instanceof ParenExpr paren) {
+            condition(paren.getExpr());
+        } else if (node instanceof IfExpr ifExpr) {
+            branches(ifExpr, this::condition);
+        } else {
+            value(node);
+            emit(Opcode.UNBOX_BOOL);
+            valueDepth--;
+            pushNumber();
+        }
+    }
+
+    private void branches(IfExpr ifExpr, Consumer<ASTNode> branch) {
+        condition(ifExpr.condition);
+        int toFalseCase = emitJump(Opcode.JUMP_IF_FALSE);
+        numberDepth--;
+
+        // only one of the cases runs, so both start out from the same stack
+        int valueDepthBefore = valueDepth, numberDepthBefore = numberDepth;
+        branch.accept(ifExpr.trueCaseExpr);
+        int toEnd = emitJump(Opcode.JUMP);
+
+        patchJump(toFalseCase);
+        valueDepth = valueDepthBefore;
+        numberDepth = numberDepthBefore;
+        branch.accept(ifExpr.falseCaseExpr);
+        patchJump(toEnd);
+    }
+
+    /**
+     * emits the code that pushes the function and its arguments, followed by the call instruction (which pops them)
+     */
+    private void call(FunctionCall call, int opcode) {
+        value(call.getFunctionExpr());
+
+        ArrayList<ASTNode> args = call.getArgs();
+        boolean[] numberArgs = new boolean[args.size()];
+        int valueArgCount = 0;
+        for (int i = 0; i < args.size(); i++) {
+            ASTNode arg = args.get(i);
+            // arithmetic always results in a number, which can then be passed without boxing it
+            if (arg instanceof AddSub || arg instanceof MulDiv) {
+                numberArgs[i] = true;
+                number(arg);
+            } else {
+                value(arg);
+                valueArgCount++;
+            }
+        }
+
+        emit(opcode, callSites.size());
+        callSites.add(new Chunk.CallSite(numberArgs, valueArgCount));
+        valueDepth -= valueArgCount + 1;
+        numberDepth -= args.size() - valueArgCount;
+    }
+
+    private boolean isOwnParameter(IdentifierExpr identifier) {
+        // the frame the VM runs with always belongs to the function being compiled
+        return identifier.getResolvedFunction() == function && identifier.getSlot() >= 0;
+    }
+
+    private static boolean isNegation(ASTNode node) {
+        return node instanceof UnaryExpr unary && unary.getOperator() == '-';
+    }
+
+    private boolean isModCall(ASTNode node) {
+        return node instanceof FunctionCall call && call.getBuiltin(function.getFunctionContext()) == Builtins.MOD;
+    }
+
+    private void pushValue() {
+        valueDepth++;
+        maxValueDepth = Math.max(maxValueDepth, valueDepth);
+    }
+
+    private void pushNumber() {
+        numberDepth++;
+        maxNumberDepth = Math.max(maxNumberDepth, numberDepth);
+    }
+
+    private int constant(ASTNode node) {
+        constants.add(node);
+        return constants.size() - 1;
+    }
+
+    private int numberConstant(double number) {
+        int index = numbers.indexOf(number);
+        if (index >= 0) return index;
+        numbers.add(number);
+        return numbers.size() - 1;
+    }
+
+    private void emit(int word) {
+        if (size == code.length) code = Arrays.copyOf(code, size * 2);
+        code[size++] = word;
+    }
+
+    private void emit(int opcode, int operand) {
+        emit(opcode);
+        emit(operand);
+    }
+
+    /**
+     * @return where the target of the jump goes, for patchJump once it is known
+     */
+    private int emitJump(int opcode) {
+        emit(opcode, -1);
+        return size - 1;
+    }
+
+    private void patchJump(int operandIndex) {
+        code[operandIndex] = size;
+    }
+
+    private Chunk toChunk() {
+        double[] numberPool = new double[numbers.size()];
+        for (int i = 0; i < numberPool.length; i++) numberPool[i] = numbers.get(i);
+        return new Chunk(Arrays.copyOf(code, size), constants.toArray(new ASTNode[0]), numberPool,
+                callSites.toArray(new Chunk.CallSite[0]), maxValueDepth, maxNumberDepth);
+    }
+}
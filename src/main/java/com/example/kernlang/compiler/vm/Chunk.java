@@ -0,0 +1,16 @@
+package com.example.kernlang.compiler.vm;
+
+import com.example.kernlang.compiler.parser.ASTNode;
+
+/**
+ * The bytecode of a single function, along with everything its instructions refer to.
+ * The stack sizes are worked out while compiling, so the VM never has to grow its stacks.
+ */
+public record Chunk(int[] code, ASTNode[] constants, double[] numbers, CallSite[] callSites,
+                    int maxValueStack, int maxNumberStack) {
+
+    /**
+     * @param numberArgs which of the arguments are passed on the number stack instead of the value stack
+     */
+    public record CallSite(boolean[] numberArgs, int valueArgCount) {}
+}
@@ -0,0 +1,47 @@
+package com.example.kernlang.compiler.vm;
+
+/**
+ * The instructions of the VM, some of them are followed by a single operand in the code array.
+ * The VM has two stacks: one for values and one for unboxed numbers,
+ * conditions live on the number stack too (0 is false, anything else is true).
+ */
+public final class Opcode {
+    // values
+    public static final int CONST = 0;          // (constant index) pushes a constant value
+    public static final int LOAD = 1;           // (slot) pushes a parameter
+    public static final int EVAL = 2;           // (constant index) interprets the syntax node with the tree-walker
+    public static final int POP = 3;
+    public static final int CALL = 4;           // (call site index) pops the function and its arguments, pushes the result
+    public static final int ASSIGN = 5;         // (constant index of the Assignment) pops the value to assign
+
+    // numbers
+    public static final int NUMBER = 6;         // (number index) pushes a number constant
+    public static final int LOAD_NUMBER = 7;    // (slot) pushes a parameter that is a number
+    public static final int ADD = 8;
+    public static final int SUBTRACT = 9;
+    public static final int MULTIPLY = 10;
+    public static final int DIVIDE = 11;
+    public static final int MOD = 12;
+    public static final int NEGATE = 13;
+
+    // conditions
+    public static final int LESS = 14;
+    public static final int GREATER = 15;
+    public static final int EQUAL = 16;         // compares the two values on top of the value stack
+    public static final int NOT_EQUAL = 17;
+
+    // moving between the two stacks
+    public static final int BOX_NUMBER = 18;
+    public static final int UNBOX_NUMBER = 19;
+    public static final int BOX_BOOL = 20;
+    public static final int UNBOX_BOOL = 21;
+
+    // control flow
+    public static final int JUMP = 22;          // (target)
+    public static final int JUMP_IF_FALSE = 23; // (target) pops a condition
+    public static final int RETURN = 24;        // returns the value on top of the stack
+    public static final int RETURN_UNIT = 25;
+    public static final int TAIL_CALL = 26;     // (call site index) like CALL, but runs the callee in place of this call
+
+    private Opcode() {}
+}
@@ -0,0 +1,172 @@
+package com.example.kernlang.compiler.vm;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+import com.example.kernlang.compiler.parser.statements.Assignment;
+import com.example.kernlang.compiler.runtime.BoolValue;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
+import com.example.kernlang.compiler.runtime.UnitValue;
+
+import java.util.Arrays;
+
+/**
+ * Runs the bytecode of functions.
+ * When it's turned off, functions are run by interpreting their syntax tree instead,
+ * which is kept around as the reference to compare the VM against.
+ */
+public class VM {
+    // opt-in for now, the JVM's JIT inlines its way through the syntax trees of hot functions,
+    // which still makes the tree-walker the faster of the two on code that mostly calls functions
+    private static volatile boolean enabled = false;
+
+    // apps run on threads of their own, so every thread gets its own stacks
+    private static final ThreadLocal<Stacks> threadStacks = ThreadLocal.withInitial(Stacks::new);
+
+    public static void setEnabled(boolean enabled) {
+        VM.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Both stacks are shared by all the calls made from a single run of the VM,
+     * every call works on the part above the top of its caller's stacks.
+     */
+    private static class Stacks {
+        ASTNode[] values = new ASTNode[64];
+        double[] numbers = new double[64];
+        // set while a run on this thread is using the stacks
+        boolean inUse = false;
+
+        void ensureCapacity(int valueTop, int numberTop) {
+            if (valueTop > values.length) values = Arrays.copyOf(values, Math.max(valueTop, values.length * 2));
+            if (numberTop > numbers.length) numbers = Arrays.copyOf(numbers, Math.max(numberTop, numbers.length * 2));
+        }
+    }
+
+    /**
+     * @param context the node the function belongs to, which is where its imports come from
+     * @param frame the arguments of this call
+     */
+    public static ASTNode run(Chunk chunk, GraphNode context, Frame frame) {
+        Stacks stacks = threadStacks.get();
+        // code the VM hands to the tree-walker can call back into the VM, that run gets stacks of its own
+        if (stacks.inUse) return execute(chunk, context, frame, new Stacks(), 0, 0);
+
+        stacks.inUse = true;
+        try {
+            return execute(chunk, context, frame, stacks, 0, 0);
+        } finally {
+            stacks.inUse = false;
+        }
+    }
+
+    private static ASTNode execute(Chunk chunk, GraphNode context, Frame frame, Stacks stacks, int v, int n) {
+        stacks.ensureCapacity(v + chunk.maxValueStack(), n + chunk.maxNumberStack());
+        int[] code = chunk.code();
+        ASTNode[] constants = chunk.constants();
+        ASTNode[] values = stacks.values;
+        double[] numbers = stacks.numbers;
+        int pc = 0;
+
+        while (true) {
+            switch (code[pc++]) {
+                case Opcode.CONST -> values[v++] = constants[code[pc++]];
+                case Opcode.LOAD -> values[v++] = frame.get(code[pc++]).interpret(context, frame);
+                case Opcode.EVAL -> values[v++] = constants[code[pc++]].interpret(context, frame);
+                case Opcode.POP -> values[--v] = null;
+                case Opcode.CALL -> {
+                    Chunk.CallSite site = chunk.callSites()[code[pc++]];
+                    // the function was pushed before its arguments
+                    FunctionLiteral function = (FunctionLiteral) values[v - site.valueArgCount() - 1];
+                    Frame calleeFrame = new Frame(function, function.getFrameSize());
+                    boolean[] numberArgs = site.numberArgs();
+                    for (int i = numberArgs.length - 1; i >= 0; i--) {
+                        if (numberArgs[i]) calleeFrame.setNumber(i, numbers[--n]);
+                        else calleeFrame.set(i, values[--v]);
+                    }
+                    // functions called from bytecode keep running on the same stacks
+                    ASTNode result = execute(function.getChunk(), function.getFunctionContext(), calleeFrame, stacks, v, n);
+                    // the callee may have needed bigger stacks
+                    values = stacks.values;
+                    numbers = stacks.numbers;
+                    values[v - 1] = result;
+                }
+                case Opcode.TAIL_CALL -> {
+                    Chunk.CallSite site = chunk.callSites()[code[pc++]];
+                    FunctionLiteral function = (FunctionLiteral) values[v - site.valueArgCount() - 1];
+                    Frame calleeFrame = new Frame(function, function.getFrameSize());
+                    boolean[] numberArgs = site.numberArgs();
+                    for (int i = numberArgs.length - 1; i >= 0; i--) {
+                        if (numberArgs[i]) calleeFrame.setNumber(i, numbers[--n]);
+                        else calleeFrame.set(i, values[--v]);
+                    }
+                    values[--v] = null;
+
+                    // the callee takes over this call instead of running on top of it,
+                    // so recursing to iterate doesn't use up the stack (just like in the tree-walker)
+                    chunk = function.getChunk();
+                    context = function.getFunctionContext();
+                    frame = calleeFrame;
+                    stacks.ensureCapacity(v + chunk.maxValueStack(), n + chunk.maxNumberStack());
+                    code = chunk.code();
+                    constants = chunk.constants();
+                    values = stacks.values;
+                    numbers = stacks.numbers;
+                    pc = 0;
+                }
+                case Opcode.ASSIGN -> {
+                    ((Assignment) constants[code[pc++]]).assign(values[--v], context, frame);
+                    values[v] = null;
+                }
+
+                case Opcode.NUMBER -> numbers[n++] = chunk.numbers()[code[pc++]];
+                case Opcode.LOAD_NUMBER -> numbers[n++] = frame.getNumber(code[pc++]);
+                case Opcode.ADD -> { n--; numbers[n - 1] += numbers[n]; }
+                case Opcode.SUBTRACT -> { n--; numbers[n - 1] -= numbers[n]; }
+                case Opcode.MULTIPLY -> { n--; numbers[n - 1] *= numbers[n]; }
+                case Opcode.DIVIDE -> { n--; numbers[n - 1] /= numbers[n]; }
+                case Opcode.MOD -> { n--; numbers[n - 1] = (int) numbers[n - 1] % (int) numbers[n]; }
+                case Opcode.NEGATE -> numbers[n - 1] = -numbers[n - 1];
+
+                case Opcode.LESS -> { n--; numbers[n - 1] = numbers[n - 1] < numbers[n] ? 1 : 0; }
+                case Opcode.GREATER -> { n--; numbers[n - 1] = numbers[n - 1] > numbers[n] ? 1 : 0; }
+                case Opcode.EQUAL -> {
+                    v -= 2;
+                    numbers[n++] = values[v].equals(values[v + 1]) ? 1 : 0;
+                    values[v] = values[v + 1] = null;
+                }
+                case Opcode.NOT_EQUAL -> {
+                    v -= 2;
+                    numbers[n++] = values[v].equals(values[v + 1]) ? 0 : 1;
+                    values[v] = values[v + 1] = null;
+                }
+
+                case Opcode.BOX_NUMBER -> values[v++] = new NumberValue(numbers[--n]);
+                case Opcode.UNBOX_NUMBER -> {
+                    numbers[n++] = ((NumberValue) values[--v]).getNumber();
+                    values[v] = null;
+                }
+                case Opcode.BOX_BOOL -> values[v++] = BoolValue.of(numbers[--n] != 0);
+                case Opcode.UNBOX_BOOL -> {
+                    numbers[n++] = ((BoolValue) values[--v]).getBool() ? 1 : 0;
+                    values[v] = null;
+                }
+
+                case Opcode.JUMP -> pc = code[pc];
+                case Opcode.JUMP_IF_FALSE -> {
+                    if (numbers[--n] == 0) pc = code[pc];
+                    else pc++;
+                }
+                case Opcode.RETURN -> { return values[--v]; }
+                case Opcode.RETURN_UNIT -> { return UnitValue.UNIT; }
+
+                default -> throw new IllegalStateException("unknown opcode " + code[pc - 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.kernlang.db;
+
+public record CompiledAstData(int nodeID, String sourceHash, byte[] ast) {
+}
@@ -12,8 +12,10 @@ public abstract class AbstractCreateTables {
     public void createAllTables(Connection connection) throws SQLException {
         createGraphNodeTable(connection);
         createGraphEdgeTable(connection);
+        createCompiledAstTable(connection);
     }
 
     public abstract void createGraphNodeTable(Connection connection) throws SQLException;
     public abstract void createGraphEdgeTable(Connection connection) throws SQLException;
+    public abstract void createCompiledAstTable(Connection connection) throws SQLException;
 }
@@ -0,0 +1,16 @@
+package com.example.kernlang.db.DAOAbstraction;
+
+import com.example.kernlang.db.CompiledAstData;
+import com.example.kernlang.db.DataAccessException;
+
+import java.util.ArrayList;
+
+public interface CompiledAstDAO {
+
+    /**
+     * @return the compiled syntax trees of all nodes that had one, or nothing for dbs made before these were stored
+     */
+    ArrayList<CompiledAstData> getAllCompiledAsts() throws DataAccessException;
+
+    void addCompiledAst(CompiledAstData compiledAst) throws DataAccessException;
+}
@@ -12,6 +12,8 @@ public interface DataAccessContext extends AutoCloseable {
 
     GraphEdgeDAO getGraphEdgeDAO();
 
+    CompiledAstDAO getCompiledAstDAO();
+
     void createDB() throws SQLException;
 
     @Override
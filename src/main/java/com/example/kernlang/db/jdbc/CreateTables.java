@@ -37,4 +37,18 @@ public final class CreateTables extends AbstractCreateTables {
             );
         }
     }
+
+    public void createCompiledAstTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE compiledast (
+                        nodeid INTEGER PRIMARY KEY,
+                        sourcehash TEXT NOT NULL,
+                        ast BLOB NOT NULL,
+                        FOREIGN KEY (nodeid) REFERENCES graphnode (id)
+                    );
+                    """
+            );
+        }
+    }
 }
@@ -0,0 +1,56 @@
+package com.example.kernlang.db.jdbc;
+
+import com.example.kernlang.db.CompiledAstData;
+import com.example.kernlang.db.DAOAbstraction.CompiledAstDAO;
+import com.example.kernlang.db.DataAccessException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+public class JDBCCompiledAstDAO implements CompiledAstDAO {
+
+    private final Connection connection;
+
+    public JDBCCompiledAstDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public ArrayList<CompiledAstData> getAllCompiledAsts() throws DataAccessException {
+        ArrayList<CompiledAstData> out = new ArrayList<>();
+        try {
+            // older project files don't have this table, their nodes just get compiled again
+            try (ResultSet tables = connection.getMetaData().getTables(null, null, "compiledast", null)) {
+                if (!tables.next()) return out;
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement("SELECT nodeid, sourcehash, ast FROM compiledast")) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.add(new CompiledAstData(rs.getInt("nodeid"), rs.getString("sourcehash"), rs.getBytes("ast")));
+                    }
+                    return out;
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("couldn't get the compiled syntax trees from the db", ex);
+        }
+    }
+
+    @Override
+    public void addCompiledAst(CompiledAstData compiledAst) throws DataAccessException {
+        if (compiledAst != null) {
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO compiledast (nodeid, sourcehash, ast) VALUES (?, ?, ?)")) {
+                ps.setInt(1, compiledAst.nodeID());
+                ps.setString(2, compiledAst.sourceHash());
+                ps.setBytes(3, compiledAst.ast());
+                ps.execute();
+            } catch (SQLException ex) {
+                throw new DataAccessException("couldn't add the compiled syntax tree of node " + compiledAst.nodeID() + " in the db", ex);
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.kernlang.db.jdbc;
 
 import com.example.kernlang.db.DAOAbstraction.AbstractCreateTables;
+import com.example.kernlang.db.DAOAbstraction.CompiledAstDAO;
 import com.example.kernlang.db.DAOAbstraction.DataAccessContext;
 import com.example.kernlang.db.DAOAbstraction.GraphEdgeDAO;
 import com.example.kernlang.db.DAOAbstraction.GraphNodeDAO;
@@ -29,6 +30,11 @@ public class JDBCDataAccessContext implements DataAccessContext {
         return new JDBCGraphEdgeDAO(connection);
     }
 
+    @Override
+    public CompiledAstDAO getCompiledAstDAO() {
+        return new JDBCCompiledAstDAO(connection);
+    }
+
     @Override
     public void createDB() throws SQLException {
         tableMaker.createAllTables(connection);
@@ -0,0 +1,169 @@
+package com.example.kernlang.operating_system;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.Compiler;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+import com.example.kernlang.compiler.parser.expressions.literals.RecordLiteral;
+import com.example.kernlang.compiler.runtime.CallStack;
+import com.example.kernlang.db.CompiledAstData;
+import com.example.kernlang.db.DAOAbstraction.DataAccessContext;
+import com.example.kernlang.db.DataAccessException;
+import com.example.kernlang.db.EdgeData;
+import com.example.kernlang.db.NodeData;
+import com.example.kernlang.db.jdbc.JDBCDataAccessProvider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Runs a Kern app without the IDE (and so without JavaFX), e.g. to keep track of how fast apps run on a build server.
+ * The project is opened from its .sqlite file and compiled, then the app's update function runs for a number of ticks,
+ * as fast as it can, with the time every update gets being what it would be at the app's own rate.
+ * Just like in the IDE, an event driven app only updates when it starts, when keys get pressed and on its timer.
+ *
+ * usage: HeadlessRunner <project.sqlite> <app node> [ticks] [keys]
+ * keys are pressed just before some of the ticks, given as tick:characters separated by commas,
+ * e.g. "5:ww,12:d" presses w twice before tick 5 and d before tick 12
+ *
+ * Graph nodes are JavaFX panes, so loading them still initializes the graphics pipeline (nothing is ever shown).
+ * The runner picks the software pipeline (-Dprism.order=sw), which works on machines without a display or OpenGL,
+ * unless prism.order was given on the command line.
+ */
+public class HeadlessRunner {
+    public static final int DEFAULT_TICKS = 1000;
+
+    public static void main(String[] args) throws DataAccessException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("usage: HeadlessRunner <project.sqlite> <app node> [ticks] [keys]");
+            return;
+        }
+        // has to be set before the first graph node gets made
+        if (System.getProperty("prism.order") == null) System.setProperty("prism.order", "sw");
+
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TICKS;
+        HashMap<Integer, String> keys = args.length > 3 ? parseKeys(args[3]) : new HashMap<>();
+
+        ArrayList<GraphNode> nodes = openProject(args[0]);
+        ArrayList<String> errors = Compiler.compileNow(nodes);
+        for (String error : errors) System.out.println(error);
+
+        GraphNode appNode = null;
+        for (GraphNode node : nodes) {
+            if (node.getName().equals(args[1])) appNode = node;
+        }
+        if (appNode == null) {
+            System.out.println("there is no node called " + args[1] + " in " + args[0]);
+            return;
+        }
+
+        // the app runs on a thread with a stack as deep as it would get in the IDE
+        GraphNode app = appNode;
+        Thread runner = CallStack.newThread(app.getName(), () -> System.out.println(run(app, ticks, keys)));
+        runner.start();
+        runner.join();
+    }
+
+    /**
+     * loads the nodes and their imports from a project file, without a graph window to show them in
+     */
+    public static ArrayList<GraphNode> openProject(String fileName) throws DataAccessException {
+        DataAccessContext dac = new JDBCDataAccessProvider(fileName).getDataAccessContent();
+
+        HashMap<Integer, CompiledAstData> compiledAsts = new HashMap<>();
+        for (CompiledAstData compiledAst : dac.getCompiledAstDAO().getAllCompiledAsts()) {
+            compiledAsts.put(compiledAst.nodeID(), compiledAst);
+        }
+
+        ArrayList<GraphNode> nodes = new ArrayList<>();
+        HashMap<Integer, GraphNode> nodesByID = new HashMap<>();
+        for (NodeData nodeData : dac.getGraphNodeDAO().getAllGraphNodes()) {
+            GraphNode node = new GraphNode(nodeData.name(), nodeData.xpos(), nodeData.ypos(), null, nodeData.id());
+            node.setCodeString(nodeData.code());
+            // same as when opening the project in the IDE, a syntax tree compiled from this exact code gets used as is
+            CompiledAstData compiledAst = compiledAsts.get(nodeData.id());
+            if (compiledAst != null && Compiler.isStoredAstUsable(compiledAst.sourceHash(), nodeData.code())) {
+                node.setEncodedAst(compiledAst.ast());
+                node.setCompiled();
+            }
+            nodes.add(node);
+            nodesByID.put(nodeData.id(), node);
+        }
+
+        for (EdgeData edgeData : dac.getGraphEdgeDAO().getAllEdges()) {
+            GraphNode startNode = nodesByID.get(edgeData.startID());
+            GraphNode endNode = nodesByID.get(edgeData.endID());
+            if (startNode != null && endNode != null) startNode.importGraphNode(endNode, false);
+        }
+        return nodes;
+    }
+
+    /**
+     * runs the app for the given number of ticks on the calling thread
+     * @return a report of how fast it ran, and the terminal output it ended with
+     */
+    public static String run(GraphNode appNode, int ticks, HashMap<Integer, String> keys) {
+        RecordLiteral appRecord = (RecordLiteral) appNode.getValue();
+        ASTNode startData = appRecord.getField("start_data");
+        FunctionLiteral update = (FunctionLiteral) appRecord.getField("update");
+        FunctionLiteral terminal = (FunctionLiteral) appRecord.getField("terminal");
+        ProcessTiming timing = ProcessTiming.of(appRecord, appNode);
+
+        String[] output = {""};
+        ProcessRuntime runtime = new ProcessRuntime(appNode.getName(), startData, update, null, terminal, timing,
+                outputText -> output[0] = outputText);
+
+        // the time passing between ticks, as it would when running in the IDE
+        // (an event driven app without a timer gets its keys at the default tick rate)
+        double updateRate = timing.isFixedTimestep() ? timing.fixedRate()
+                : timing.tickRate() > 0 ? timing.tickRate() : Scheduler.DEFAULT_TICK_RATE;
+        boolean hasTimer = !timing.isEventDriven() || timing.tickRate() > 0;
+        long nextRenderTime = 0;
+        int updates = 0;
+
+        long startTime = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            String pressed = keys.get(tick);
+            // nothing wakes up an event driven app without a timer, other than starting it and pressing keys
+            if (!hasTimer && tick > 0 && pressed == null) continue;
+
+            long tickStart = System.nanoTime();
+            if (pressed != null) {
+                for (char key : pressed.toCharArray()) runtime.keyPressed(key);
+            }
+
+            long time = (long) (tick * 1000 / updateRate);
+            runtime.runUpdate(time);
+            updates++;
+            // an event driven app renders after every update, like it does in the IDE
+            if (timing.isEventDriven() || time >= nextRenderTime) {
+                nextRenderTime = time + (long) (1000 / timing.renderRate());
+                runtime.renderOutput();
+            }
+            runtime.getMetrics().frameTime(System.nanoTime() - tickStart);
+        }
+        runtime.renderOutput();
+        long elapsed = System.nanoTime() - startTime;
+
+        ProcessMetrics metrics = runtime.getMetrics();
+        return "ticks: " + ticks +
+                "\nupdates: " + updates +
+                String.format("\ntime: %.1f ms", elapsed / 1e6) +
+                String.format("\nupdates per second: %.1f", updates / (elapsed / 1e9)) +
+                String.format("\nframe time: %.3f ms p50, %.3f ms p99",
+                        metrics.getFrameTimePercentile(50) / 1e6, metrics.getFrameTimePercentile(99) / 1e6) +
+                "\nrenders: " + metrics.getRenders() +
+                "\nterminal output:\n" + output[0];
+    }
+
+    private static HashMap<Integer, String> parseKeys(String script) {
+        HashMap<Integer, String> keys = new HashMap<>();
+        for (String press : script.split(",")) {
+            int colon = press.indexOf(':');
+            if (colon < 0) continue;
+            int tick = Integer.parseInt(press.substring(0, colon).strip());
+            keys.merge(tick, press.substring(colon + 1), String::concat);
+        }
+        return keys;
+    }
+}
@@ -2,10 +2,7 @@ package com.example.kernlang.operating_system;
 
 import com.example.kernlang.codebase_viewer.graph.GraphNode;
 import com.example.kernlang.compiler.parser.ASTNode;
-import com.example.kernlang.compiler.parser.expressions.literals.ArrayLiteral;
-import com.example.kernlang.compiler.parser.expressions.literals.CharLiteral;
 import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
-import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
 import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
@@ -13,34 +10,30 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collector;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class KernProcess extends Stage {
-    ASTNode processData;
-
     GraphNode processNode;
-    FunctionLiteral update;
-    FunctionLiteral render;
 
-    FunctionLiteral terminal;
+    private final ProcessRuntime runtime;
 
-    private Queue<Character> keyBuffer = new ConcurrentLinkedQueue<>();
+    private final Label label;
+    private Scheduler.ScheduledProcess scheduled;
 
-    public KernProcess(ASTNode startData, FunctionLiteral update, FunctionLiteral render, FunctionLiteral terminal, GraphNode processNode) {
-        this.processData = startData;
-        this.update = update;
-        this.render = render;
-        this.terminal = terminal;
+    // the output that is waiting for the JavaFX thread to show it (if any)
+    private final AtomicReference<String> pendingOutput = new AtomicReference<>();
 
+    public KernProcess(ASTNode startData, FunctionLiteral update, FunctionLiteral render, FunctionLiteral terminal, GraphNode processNode,
+                       Scheduler scheduler, ProcessTiming timing) {
         this.processNode = processNode;
+        // a text that is still waiting to be shown just gets replaced, so the JavaFX thread never falls behind
+        this.runtime = new ProcessRuntime(processNode.getName(), startData, update, render, terminal, timing, outputText -> {
+            if (pendingOutput.getAndSet(outputText) == null) Platform.runLater(this::showPendingOutput);
+        });
 
         this.setTitle(processNode.getName());
 
-        final Label label = new Label("this is to be replaced with the apps data");
+        label = new Label("this is to be replaced with the apps data");
         VBox container = new VBox(label);
 
         Scene scene = new Scene(container, 600, 400);
@@ -49,7 +42,9 @@ public class KernProcess extends Stage {
             String eventString = event.getText();
             if (eventString != null && eventString.length() > 0) {
                 char character = eventString.charAt(0);
-                keyBuffer.offer(character); // Add the character to the buffer
+                runtime.keyPressed(character); // Add the character to the buffer
+                // no need to wait for the next tick to see the key
+                scheduled.wake();
             }
         });
 
@@ -58,78 +53,22 @@ public class KernProcess extends Stage {
         this.setScene(scene);
         this.show();
 
+        // the steps run on the workers of the scheduler, instead of on a thread of this process' own
+        scheduled = scheduler.start(processNode.getName(), runtime::step, timing.tickRate());
 
-        // Start a new thread for your while loop
-        Thread loopThread = new Thread(() -> {
-            long startTime = System.currentTimeMillis();
-            StringBuilder s = new StringBuilder();
-            while (!Thread.currentThread().isInterrupted()) {
-                StringBuilder currentS = new StringBuilder(s);
-
-                // Process characters from the buffer
-                Character character = null;
-                //int i =
-                while (!keyBuffer.isEmpty()) {
-                    character = keyBuffer.poll();
-                    currentS.append(character); // Append character to the current string
-                }
-
-                // process the input with the input function provided
-                CharLiteral inputKey = new CharLiteral();
-                if (character == null) inputKey.setLiteral('_'); // provide a useless character
-                else inputKey.setLiteral(character);
-                HashMap<String, ASTNode> args = new HashMap<>();
-                args.put("app_data", processData);
-                args.put("input_key", inputKey);
-                long time = System.currentTimeMillis() - startTime;
-                NumberLiteral timeArg = new NumberLiteral((double) time);
-                args.put("time", timeArg);
-                processData = update.callWithArgs(args);
-
-                // Update the label's text on the JavaFX application thread
-                Platform.runLater(() -> {
-                    if (render == null) {
-                        // use terminal
-                        HashMap<String, ASTNode> terminalArgs = new HashMap<>();
-                        terminalArgs.put("app_data", processData);
-                        ArrayLiteral terminalOutput = (ArrayLiteral) terminal.callWithArgs(terminalArgs);
-                        String outputText = terminalOutput.getElements().stream().map(
-                                        el -> ((CharLiteral) el).getLiteral())
-                                                    .collect(Collector.of(
-                                                        StringBuilder::new,
-                                                        StringBuilder::append,
-                                                        StringBuilder::append,
-                                                        StringBuilder::toString));
-                        label.setText(outputText);
-
-                    } else {
-                        // use GUI
-                    }
-                    //label.setText(currentS.toString()); // Convert StringBuilder to String
-                });
-
-                // Set the updated value back to 's'
-                s = currentS;
-
-                // Optionally add a sleep to control the loop speed
-                try {
-                    Thread.sleep(5); // Sleep for 1 second
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt(); // Restore interrupted status
-                }
-            }
-        });
-
-        this.setOnCloseRequest((WindowEvent event) -> {
-            // Shutdown the loopThread when the stage is closed
-            if (loopThread != null && loopThread.isAlive()) {
-                loopThread.interrupt();
-            }
-        });
+        this.setOnCloseRequest((WindowEvent event) -> scheduled.stop());
+    }
 
-        // Start the loop thread
-        loopThread.start();
+    public ProcessMetrics getMetrics() {
+        return runtime.getMetrics();
     }
 
+    public boolean isStopped() {
+        return scheduled.isStopped();
+    }
 
+    private void showPendingOutput() {
+        String outputText = pendingOutput.getAndSet(null);
+        if (outputText != null) label.setText(outputText);
+    }
 }
@@ -6,22 +6,38 @@ import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral
 import com.example.kernlang.compiler.parser.expressions.literals.RecordLiteral;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 public class OS {
     ArrayList<KernProcess> processes = new ArrayList<>();
 
+    // all processes share its workers, instead of each running on a thread of its own
+    private final Scheduler scheduler = new Scheduler();
+
     public OS() {
 
     }
 
     public void addNewProcess(GraphNode g) {
-        RecordLiteral appRecord = (RecordLiteral) (g.getAST().interpret(g, new HashMap<>()));
+        RecordLiteral appRecord = (RecordLiteral) g.getValue();
         ASTNode startData = appRecord.getField("start_data");
         FunctionLiteral update = (FunctionLiteral) appRecord.getField("update");
         FunctionLiteral render = (FunctionLiteral) appRecord.getField("render");
         FunctionLiteral terminal = (FunctionLiteral) appRecord.getField("terminal");
         //processes.add(new KernProcess(startData, update, render, terminal, g));
-        processes.add(new KernProcess(startData, update, null, terminal, g));
+        processes.add(new KernProcess(startData, update, null, terminal, g, scheduler, ProcessTiming.of(appRecord, g)));
+    }
+
+    /**
+     * @return the metrics of every process started so far, as shown in the statistics menu
+     */
+    public String getStatistics() {
+        if (processes.isEmpty()) return "no processes started yet";
+        StringBuilder result = new StringBuilder();
+        for (KernProcess process : processes) {
+            if (result.length() > 0) result.append("\n\n");
+            result.append(process.getMetrics());
+            if (process.isStopped()) result.append("\n\tstopped");
+        }
+        return result.toString();
     }
 }
@@ -0,0 +1,90 @@
+package com.example.kernlang.operating_system;
+
+import java.util.Arrays;
+
+/**
+ * Some numbers about how a running process keeps up, shown in the statistics menu of the IDE.
+ * They're counted on the worker running the process and read from the JavaFX thread, hence the synchronization.
+ */
+public class ProcessMetrics {
+    // frame times of the most recent steps, older ones get overwritten
+    private static final int SAMPLES = 1024;
+
+    private final String name;
+    private final long[] frameTimes = new long[SAMPLES];
+    private int frameCount = 0;
+
+    private long updates = 0;
+    private long renders = 0;
+    private long droppedFrames = 0;
+
+    // updates per second are counted over whole seconds
+    private long secondStart = System.nanoTime();
+    private long updatesThisSecond = 0;
+    private double updatesPerSecond = 0;
+
+    public ProcessMetrics(String name) {
+        this.name = name;
+    }
+
+    public synchronized void update() {
+        updates++;
+        updatesThisSecond++;
+        long now = System.nanoTime();
+        if (now - secondStart >= 1_000_000_000) {
+            updatesPerSecond = updatesThisSecond * 1e9 / (now - secondStart);
+            updatesThisSecond = 0;
+            secondStart = now;
+        }
+    }
+
+    public synchronized void render() {
+        renders++;
+    }
+
+    public synchronized void dropFrames(long count) {
+        droppedFrames += count;
+    }
+
+    public synchronized void frameTime(long nanos) {
+        frameTimes[frameCount % SAMPLES] = nanos;
+        frameCount++;
+    }
+
+    /**
+     * @return the frame time (in nanoseconds) that the given percentage of the recent steps stayed under
+     */
+    public synchronized long getFrameTimePercentile(double percentage) {
+        int count = Math.min(frameCount, SAMPLES);
+        if (count == 0) return 0;
+        long[] sorted = Arrays.copyOf(frameTimes, count);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.max(0, Math.min(count - 1, Math.ceil(percentage / 100 * count) - 1))];
+    }
+
+    public synchronized double getUpdatesPerSecond() {
+        return updatesPerSecond;
+    }
+
+    public synchronized long getUpdates() {
+        return updates;
+    }
+
+    public synchronized long getRenders() {
+        return renders;
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name +
+                String.format("\n\tupdates: %d (%.1f per second)", updates, updatesPerSecond) +
+                "\n\trenders: " + renders +
+                "\n\tdropped frames: " + droppedFrames +
+                String.format("\n\tframe time: %.2f ms p50, %.2f ms p99",
+                        getFrameTimePercentile(50) / 1e6, getFrameTimePercentile(99) / 1e6);
+    }
+}
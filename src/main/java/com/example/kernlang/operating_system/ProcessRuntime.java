@@ -0,0 +1,161 @@
+package com.example.kernlang.operating_system;
+
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.expressions.literals.ArrayLiteral;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+import com.example.kernlang.compiler.runtime.CharValue;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
+
+import java.util.HashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * The part of a running app that doesn't need a window: its data, the input waiting for it and its update loop.
+ * A KernProcess shows the output in a window, the HeadlessRunner runs apps without one.
+ */
+public class ProcessRuntime {
+    ASTNode processData;
+
+    FunctionLiteral update;
+    FunctionLiteral render;
+
+    FunctionLiteral terminal;
+
+    private Queue<Character> keyBuffer = new ConcurrentLinkedQueue<>();
+
+    private final long startTime = System.currentTimeMillis();
+    private StringBuilder s = new StringBuilder();
+
+    private final ProcessTiming timing;
+    private final boolean batchedInput;
+    private final ProcessMetrics metrics;
+    // in fixed timestep mode, the number of updates that were either run or dropped so far
+    private long updateCount = 0;
+    private final long startNanos = System.nanoTime();
+    private long lastRenderNanos = 0;
+
+    // gets the terminal output whenever it changed, on the thread running the process
+    private final Consumer<String> output;
+    private String lastOutput = null;
+
+    public ProcessRuntime(String name, ASTNode startData, FunctionLiteral update, FunctionLiteral render, FunctionLiteral terminal,
+                          ProcessTiming timing, Consumer<String> output) {
+        this.processData = startData;
+        this.update = update;
+        this.render = render;
+        this.terminal = terminal;
+
+        this.timing = timing;
+        this.batchedInput = update.getParamIdentifiers().contains("input_keys");
+        this.metrics = new ProcessMetrics(name);
+        this.output = output;
+    }
+
+    public void keyPressed(char character) {
+        keyBuffer.offer(character);
+    }
+
+    /**
+     * a single tick of the process: runs the updates that are due, and makes the output if it's time for that
+     * in fixed timestep mode an update is due every 1/fixed_rate seconds, a step that comes late runs the ones it missed,
+     * up to max_catch_up of them (the rest are dropped), and every update gets the same amount of time passed to it
+     */
+    public void step() {
+        long stepStart = System.nanoTime();
+
+        if (timing.isFixedTimestep()) {
+            long updateNanos = (long) (1_000_000_000 / timing.fixedRate());
+            long due = (stepStart - startNanos) / updateNanos + 1 - updateCount;
+            if (due > timing.maxCatchUp()) {
+                metrics.dropFrames(due - timing.maxCatchUp());
+                updateCount += due - timing.maxCatchUp();
+                due = timing.maxCatchUp();
+            }
+            for (long i = 0; i < due; i++) {
+                runUpdate((long) (updateCount * 1000 / timing.fixedRate()));
+                updateCount++;
+            }
+        } else {
+            runUpdate(System.currentTimeMillis() - startTime);
+        }
+
+        // an event driven process may not step again for a long time, so what it shows has to be up to date right away
+        if (timing.isEventDriven() || stepStart - lastRenderNanos >= 1_000_000_000 / timing.renderRate()) {
+            lastRenderNanos = stepStart;
+            renderOutput();
+        }
+
+        metrics.frameTime(System.nanoTime() - stepStart);
+    }
+
+    public void runUpdate(long time) {
+        StringBuilder currentS = new StringBuilder(s);
+
+        // Process characters from the buffer
+        Character character = null;
+        // update functions with an input_keys parameter get all of the keys pressed since the last update
+        ArrayLiteral inputKeys = batchedInput ? new ArrayLiteral() : null;
+        //int i =
+        while (!keyBuffer.isEmpty()) {
+            character = keyBuffer.poll();
+            currentS.append(character); // Append character to the current string
+            if (inputKeys != null) inputKeys.addElement(CharValue.of(character));
+        }
+
+        // process the input with the input function provided
+        CharValue inputKey;
+        if (character == null) inputKey = CharValue.of('_'); // provide a useless character
+        else inputKey = CharValue.of(character);
+        HashMap<String, ASTNode> args = new HashMap<>();
+        args.put("app_data", processData);
+        args.put("input_key", inputKey);
+        if (inputKeys != null) args.put("input_keys", inputKeys);
+        NumberValue timeArg = new NumberValue(time);
+        args.put("time", timeArg);
+        processData = update.callWithArgs(args);
+        metrics.update();
+
+        // Set the updated value back to 's'
+        s = currentS;
+    }
+
+    public void renderOutput() {
+        if (render == null) {
+            // use terminal
+            // the output is made right here, from the data this step ended with, whoever shows it only gets the text
+            String outputText = terminalText(processData);
+            metrics.render();
+            // nothing to show when the output didn't change
+            if (!outputText.equals(lastOutput)) {
+                lastOutput = outputText;
+                output.accept(outputText);
+            }
+        } else {
+            // use GUI
+        }
+        //label.setText(currentS.toString()); // Convert StringBuilder to String
+    }
+
+    public String terminalText(ASTNode appData) {
+        HashMap<String, ASTNode> terminalArgs = new HashMap<>();
+        terminalArgs.put("app_data", appData);
+        ArrayLiteral terminalOutput = (ArrayLiteral) terminal.callWithArgs(terminalArgs);
+        StringBuilder outputText = new StringBuilder(terminalOutput.size());
+        for (int i = 0; i < terminalOutput.size(); i++) {
+            ASTNode el = terminalOutput.getElement(i);
+            outputText.append(((CharValue) el.interpret(terminal.getFunctionContext(), Frame.EMPTY)).getChar());
+        }
+        return outputText.toString();
+    }
+
+    public ProcessMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ProcessTiming getTiming() {
+        return timing;
+    }
+}
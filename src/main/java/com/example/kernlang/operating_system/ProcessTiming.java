@@ -0,0 +1,54 @@
+package com.example.kernlang.operating_system;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.expressions.literals.RecordLiteral;
+import com.example.kernlang.compiler.runtime.Frame;
+
+/**
+ * How often a process runs, taken from the optional fields of the app's record.
+ * @param eventDriven whether the process only steps when a key is pressed (event_driven)
+ * @param tickRate steps per second the scheduler runs the process at (tick_rate),
+ *                 for an event driven process the rate of its timer, 0 if it has none
+ * @param fixedRate updates per second in fixed timestep mode (fixed_rate), 0 means update once every step with the real time
+ * @param maxCatchUp the most updates a single step runs to catch up (max_catch_up), any more are dropped
+ * @param renderRate the most times per second the terminal output gets made (render_rate)
+ */
+public record ProcessTiming(boolean eventDriven, double tickRate, double fixedRate, int maxCatchUp, double renderRate) {
+    public static final double DEFAULT_RENDER_RATE = 60;
+    public static final int DEFAULT_MAX_CATCH_UP = 5;
+
+    /**
+     * apps can choose how often they run with some optional fields in their record
+     */
+    public static ProcessTiming of(RecordLiteral appRecord, GraphNode g) {
+        ASTNode eventDrivenField = appRecord.getField("event_driven");
+        if (eventDrivenField != null && eventDrivenField.interpretBool(g, Frame.EMPTY)) {
+            // only input makes the process update, unless it asks for a timer with a tick_rate
+            double timerRate = number(appRecord, "tick_rate", 0, g);
+            return new ProcessTiming(true, Math.max(0, timerRate), 0, 1, DEFAULT_RENDER_RATE);
+        }
+
+        double fixedRate = number(appRecord, "fixed_rate", 0, g);
+        // in fixed timestep mode, the process doesn't need to step more often than it updates
+        double tickRate = number(appRecord, "tick_rate", fixedRate > 0 ? fixedRate : Scheduler.DEFAULT_TICK_RATE, g);
+        // a tick rate of 0 would leave the process waiting for input, which only event driven processes ask for
+        if (tickRate <= 0) tickRate = Scheduler.DEFAULT_TICK_RATE;
+        int maxCatchUp = (int) number(appRecord, "max_catch_up", DEFAULT_MAX_CATCH_UP, g);
+        double renderRate = number(appRecord, "render_rate", DEFAULT_RENDER_RATE, g);
+        return new ProcessTiming(false, tickRate, fixedRate, Math.max(1, maxCatchUp), renderRate > 0 ? renderRate : DEFAULT_RENDER_RATE);
+    }
+
+    private static double number(RecordLiteral record, String fieldName, double defaultValue, GraphNode g) {
+        ASTNode field = record.getField(fieldName);
+        return field == null ? defaultValue : field.interpretNumber(g, Frame.EMPTY);
+    }
+
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    public boolean isFixedTimestep() {
+        return fixedRate > 0;
+    }
+}
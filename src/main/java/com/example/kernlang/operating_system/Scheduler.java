@@ -0,0 +1,128 @@
+package com.example.kernlang.operating_system;
+
+import com.example.kernlang.compiler.runtime.CallStack;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the update steps of all processes on a small pool of workers, instead of a thread per process.
+ * A step is a single task, after which the process goes to the back of the queue,
+ * so one busy process can't keep the others from getting their turn.
+ * Between steps a process isn't on any thread at all, so an idle process with a low tick rate costs next to nothing,
+ * and input can wake it up before its next tick is due.
+ */
+public class Scheduler {
+    // processes tick at this rate unless they ask for another one
+    public static final double DEFAULT_TICK_RATE = 200;
+
+    private final ScheduledThreadPoolExecutor workers;
+
+    public Scheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public Scheduler(int workerCount) {
+        AtomicInteger workerNumber = new AtomicInteger();
+        // the workers run Kern code, so they get the same stack budget as any other thread running it,
+        // and they are daemons so they never keep the IDE from closing
+        workers = new ScheduledThreadPoolExecutor(workerCount, task -> {
+            Thread worker = CallStack.newThread("kern worker " + workerNumber.incrementAndGet(), task);
+            worker.setDaemon(true);
+            return worker;
+        });
+        // woken up processes cancel their next tick, which would otherwise stay in the queue until it was due
+        workers.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @param tickRate the number of times per second the step runs, when nothing wakes the process up in between,
+     *                 0 means it only runs when woken up (after running once to begin with)
+     */
+    public ScheduledProcess start(String name, Runnable step, double tickRate) {
+        ScheduledProcess process = new ScheduledProcess(name, step, tickRate);
+        process.scheduleNext(0);
+        return process;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public class ScheduledProcess {
+        private final String name;
+        private final Runnable step;
+        // -1 when the process only runs when woken up
+        private final long tickNanos;
+
+        // all of these are guarded by the process itself
+        private ScheduledFuture<?> nextTick;
+        private boolean running = false;
+        private boolean wakeRequested = false;
+        private boolean stopped = false;
+
+        private ScheduledProcess(String name, Runnable step, double tickRate) {
+            this.name = name;
+            this.step = step;
+            if (tickRate == 0) this.tickNanos = -1;
+            else this.tickNanos = (long) (1_000_000_000 / (tickRate > 0 ? tickRate : DEFAULT_TICK_RATE));
+        }
+
+        private void runStep() {
+            synchronized (this) {
+                if (stopped) return;
+                running = true;
+                wakeRequested = false;
+            }
+
+            long startTime = System.nanoTime();
+            boolean ok;
+            try {
+                ok = CallStack.run(name, step);
+            } catch (RuntimeException e) {
+                // on a thread of its own the process would have died of this just the same
+                System.out.println(name + " stopped: " + e);
+                ok = false;
+            }
+
+            synchronized (this) {
+                running = false;
+                // a process whose step failed would only fail again on the next tick
+                if (!ok) stopped = true;
+                if (stopped) return;
+                // the next tick is due one period after this one started, or right away if input came in meanwhile
+                if (wakeRequested) scheduleNext(0);
+                else if (tickNanos >= 0) scheduleNext(Math.max(0, tickNanos - (System.nanoTime() - startTime)));
+                else nextTick = null;
+            }
+        }
+
+        private synchronized void scheduleNext(long delayNanos) {
+            nextTick = workers.schedule(this::runStep, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * runs the next step as soon as possible, rather than when its tick is due
+         */
+        public synchronized void wake() {
+            if (stopped) return;
+            if (running) {
+                wakeRequested = true;
+                return;
+            }
+            // when cancelling fails, the step is just starting anyway
+            if (nextTick == null || nextTick.cancel(false)) scheduleNext(0);
+        }
+
+        public synchronized void stop() {
+            stopped = true;
+            if (nextTick != null) nextTick.cancel(false);
+        }
+
+        public synchronized boolean isStopped() {
+            return stopped;
+        }
+    }
+}
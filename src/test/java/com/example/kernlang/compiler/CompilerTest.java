@@ -0,0 +1,32 @@
+package com.example.kernlang.compiler;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.runtime.NumberValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompilerTest {
+
+    private static GraphNode node(String name, String code, int id) {
+        GraphNode node = new GraphNode(name, 0, 0, null, id);
+        node.setCodeString(code);
+        return node;
+    }
+
+    @Test
+    void codeNestedTooDeeplyIsReportedWithTheRest() {
+        GraphNode deep = node("deep", "(".repeat(100_000) + "1" + ")".repeat(100_000), 1);
+        GraphNode broken = node("broken", "1 +", 2);
+        GraphNode fine = node("fine", "1 + 2", 3);
+
+        ArrayList<String> errors = Compiler.compileNow(new ArrayList<>(List.of(deep, broken, fine)));
+
+        assertEquals(List.of("node deep : code is nested too deeply to parse",
+                "node broken : unexpected '+' after the expression"), errors);
+        assertEquals(3, assertInstanceOf(NumberValue.class, fine.getValue()).getNumber());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.kernlang.compiler.cache;
+
+import com.example.kernlang.compiler.Compiler;
+import com.example.kernlang.compiler.lexer.Lexer;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.parser.expressions.Expr;
+import com.example.kernlang.compiler.parser.expressions.literals.UnitLiteral;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AstCodecTest {
+    // between them, these use every kind of syntax node there is
+    private static final List<String> PROGRAMS = List.of(
+            "1 + 2 * 3 - 4 / 2",
+            "1 < 2",
+            "x > -1.5",
+            "1 == 2",
+            "'a' != 'b'",
+            "(1 + x)",
+            "if x == 1 then 'y' else 'n'",
+            "%f(1, x + 2)",
+            "%g()",
+            "r:a:b",
+            "{ a = 1 b = 2 }:a",
+            "xs[i + 1]",
+            "[1, 2, 3][0]",
+            "['a', 'b']",
+            "[true, false]",
+            "[1, 'a', x]",
+            "{ name = 'k' inner = { value = 2.5 } }",
+            "#(1 + 2)",
+            "\\x, y -> {\n\tz <- x\n\tr:a <- 2\n\tfor i = 1 to 10 step 2 { z <- i }\n\tfor 1 to 3 z <- 1\n\treturn x + y\n}"
+    );
+
+    @Test
+    void everyProgramSurvivesARoundTrip() {
+        for (String program : PROGRAMS) {
+            ASTNode ast = parse(program);
+            byte[] encoded = AstWriter.encode(ast);
+            ASTNode decoded = AstReader.decode(encoded);
+
+            assertNotSame(ast, decoded, program);
+            assertEquals(ast.toString(""), decoded.toString(""), program);
+            assertArrayEquals(encoded, AstWriter.encode(decoded), program);
+        }
+    }
+
+    @Test
+    void everyTagGetsWrittenAndReadBack() {
+        TreeSet<Integer> written = new TreeSet<>();
+        ArrayList<ASTNode> roots = new ArrayList<>();
+        for (String program : PROGRAMS) roots.add(parse(program));
+        // unit can't be written in code, but it still has an encoding
+        roots.add(new UnitLiteral());
+
+        for (ASTNode root : roots) {
+            AstWriter writer = new AstWriter() {
+                @Override
+                public void writeTag(int tag) {
+                    written.add(tag);
+                    super.writeTag(tag);
+                }
+            };
+            writer.writeNode(root);
+            ASTNode decoded = AstReader.decode(writer.toByteArray());
+            assertEquals(root.toString(""), decoded.toString(""));
+        }
+
+        assertEquals(allTags(), written);
+    }
+
+    @Test
+    void unknownTagsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> AstReader.decode(new byte[]{(byte) 200}));
+    }
+
+    @Test
+    void storedTreesOfAnOlderFormatVersionAreRejected() {
+        String code = "\\x -> { return x * 2 }";
+        String contentHash = CompileCache.contentHash(new Lexer(code).lexCode());
+
+        assertTrue(Compiler.isStoredAstUsable(Compiler.sourceHash(code), code));
+        assertTrue(Compiler.isStoredAstUsable(AstTag.FORMAT_VERSION + ":" + contentHash, code));
+        assertFalse(Compiler.isStoredAstUsable((AstTag.FORMAT_VERSION - 1) + ":" + contentHash, code));
+        assertFalse(Compiler.isStoredAstUsable(contentHash, code));
+        assertFalse(Compiler.isStoredAstUsable(null, code));
+    }
+
+    @Test
+    void storedTreesOfOtherCodeAreRejected() {
+        assertFalse(Compiler.isStoredAstUsable(Compiler.sourceHash("\\x -> { return x * 2 }"), "\\x -> { return x * 3 }"));
+        // whitespace doesn't make it other code
+        assertTrue(Compiler.isStoredAstUsable(Compiler.sourceHash("\\x -> { return x * 2 }"), "\\x->{\n\treturn x*2\n}"));
+    }
+
+    private static ASTNode parse(String program) {
+        ParseResult result = new Expr().parse(new SourceBuffer(program), 0);
+        assertTrue(result.syntaxNode().isPresent(), "failed to parse " + program);
+        return result.syntaxNode().get();
+    }
+
+    private static TreeSet<Integer> allTags() {
+        TreeSet<Integer> tags = new TreeSet<>();
+        for (Field field : AstTag.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == int.class && !field.getName().equals("FORMAT_VERSION")) {
+                try {
+                    tags.add(field.getInt(null));
+                } catch (IllegalAccessException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+        return tags;
+    }
+}
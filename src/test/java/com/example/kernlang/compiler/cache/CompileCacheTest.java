@@ -0,0 +1,53 @@
+package com.example.kernlang.compiler.cache;
+
+import com.example.kernlang.compiler.lexer.Lexer;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.parser.expressions.Expr;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileCacheTest {
+
+    private static String hash(String code) {
+        return CompileCache.contentHash(new Lexer(code).lexCode());
+    }
+
+    @Test
+    void contentHashIgnoresWhitespace() {
+        String code = "\\n -> {\n\treturn if n > 2 then %fib(n - 1) + %fib(n - 2) else 1\n}";
+        String squashed = "\\n->{return if n>2 then %fib(n-1)+%fib(n-2) else 1}";
+        String spread = "  \\n   ->   {\n\n   return   if n >   2\n then %fib( n - 1 )\t+ %fib(n - 2)\n else 1 }  ";
+
+        assertEquals(hash(code), hash(squashed));
+        assertEquals(hash(code), hash(spread));
+    }
+
+    @Test
+    void contentHashTellsTokensApart() {
+        assertNotEquals(hash("1 + 2"), hash("1 + 3"));
+        assertNotEquals(hash("1 + 2"), hash("1 - 2"));
+        // the same characters, split into different tokens
+        assertNotEquals(hash("ab"), hash("a b"));
+        assertNotEquals(hash("'a'"), hash("a"));
+    }
+
+    @Test
+    void hitsDecodeIntoFreshTrees() {
+        CompileCache cache = new CompileCache();
+        String code = "{ a = 1 b = [1, 2] }";
+        ASTNode ast = new Expr().parse(new SourceBuffer(code), 0).syntaxNode().orElseThrow();
+
+        assertNull(cache.lookup(hash(code)));
+        byte[] stored = cache.store(hash(code), ast);
+        byte[] hit = cache.lookup(hash("{a=1 b=[1,2]}"));
+
+        assertArrayEquals(stored, hit);
+        ASTNode first = AstReader.decode(hit);
+        ASTNode second = AstReader.decode(hit);
+        assertNotSame(first, second);
+        assertEquals(ast.toString(""), first.toString(""));
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.kernlang.compiler.jit;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.Compiler;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.vm.VM;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The tree-walker is the reference, the VM and the code compiled by the JvmCompiler have to give the same results.
+ */
+class JitAgreementTest {
+    private enum Engine { TREE, VM, JIT }
+
+    // including a NaN with other bits than Double.NaN, which still has to equal every other NaN
+    private static final double[] SPECIAL_NUMBERS = {0.0, -0.0, Double.NaN, Double.longBitsToDouble(0x7ff8000000000001L),
+            1.0, -1.5, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    private final LinkedHashMap<String, GraphNode> nodes = new LinkedHashMap<>();
+
+    @AfterEach
+    void restoreDefaults() {
+        VM.setEnabled(false);
+        JvmCompiler.setEnabled(true);
+    }
+
+    private GraphNode node(String name, String code) {
+        GraphNode node = new GraphNode(name, 0, 0, null, nodes.size() + 1);
+        node.setCodeString(code);
+        nodes.put(name, node);
+        return node;
+    }
+
+    private void imports(String name, String... importNames) {
+        for (String importName : importNames) nodes.get(name).importGraphNode(nodes.get(importName), false);
+    }
+
+    private void compile() {
+        assertEquals(new ArrayList<String>(), Compiler.compileNow(new ArrayList<>(nodes.values())));
+    }
+
+    private FunctionLiteral function(String name) {
+        return (FunctionLiteral) nodes.get(name).getValue();
+    }
+
+    private static Frame frame(FunctionLiteral function, double... args) {
+        Frame frame = new Frame(function, function.getFrameSize());
+        for (int i = 0; i < args.length; i++) frame.setNumber(i, args[i]);
+        return frame;
+    }
+
+    private double call(Engine engine, String name, double... args) {
+        FunctionLiteral function = function(name);
+        VM.setEnabled(engine == Engine.VM);
+        JvmCompiler.setEnabled(engine == Engine.JIT);
+        if (engine != Engine.JIT) return function.callNumber(frame(function, args));
+
+        CompiledFunction compiled = JvmCompiler.compile(function);
+        assertNotNull(compiled, name + " should be compilable");
+        return compiled.call(frame(function, args));
+    }
+
+    private void assertAgree(double expected, String name, double... args) {
+        for (Engine engine : Engine.values()) {
+            double result = call(engine, name, args);
+            // compared by their bits, so -0.0 and NaN have to come out exactly right as well
+            assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(result),
+                    engine + " " + name + Arrays.toString(args) + " gave " + result + ", expected " + expected);
+        }
+    }
+
+    @Test
+    void fibonacci() {
+        node("fib", "\\n -> {\n\treturn if n < 2 then n else %fib(n - 1) + %fib(n - 2)\n}");
+        imports("fib", "fib");
+        compile();
+
+        double a = 0, b = 1;
+        for (int n = 0; n <= 20; n++) {
+            assertAgree(a, "fib", n);
+            double next = a + b;
+            a = b;
+            b = next;
+        }
+    }
+
+    @Test
+    void tailRecursion() {
+        node("count", "\\n, acc -> {\n\treturn if n < 1 then acc else %count(n - 1, acc + 2)\n}");
+        imports("count", "count");
+        compile();
+
+        for (int n : new int[]{0, 1, 10, 500}) assertAgree(2.0 * n, "count", n, 0);
+
+        // the tree-walker and the VM run calls in return position in a loop, so this doesn't take any stack
+        JvmCompiler.setEnabled(false);
+        FunctionLiteral count = function("count");
+        for (boolean vm : new boolean[]{false, true}) {
+            VM.setEnabled(vm);
+            assertEquals(2_000_000, count.callNumber(frame(count, 1_000_000, 0)), "vm " + vm);
+        }
+    }
+
+    @Test
+    void mutualTailRecursion() {
+        // the tail calls go back and forth between functions of different nodes, through parentheses and ifs
+        node("even", "\\n -> {\n\treturn if n < 1 then 1 else (%odd(n - 1))\n}");
+        node("odd", "\\n -> {\n\treturn if n < 1 then 0 else if n < 2 then 1 else %even(n - 1)\n}");
+        imports("even", "odd");
+        imports("odd", "even");
+        compile();
+
+        for (int n : new int[]{0, 1, 2, 7, 100}) assertAgree(n % 2 == 0 ? 1 : 0, "even", n);
+
+        JvmCompiler.setEnabled(false);
+        FunctionLiteral even = function("even");
+        for (boolean vm : new boolean[]{false, true}) {
+            VM.setEnabled(vm);
+            assertEquals(0, even.callNumber(frame(even, 1_000_001)), "vm " + vm);
+            assertEquals(1, even.call(frame(even, 1_000_000)).interpretNumber(null, Frame.EMPTY), "vm " + vm);
+        }
+    }
+
+    @Test
+    void equalityComparesBits() {
+        node("eq", "\\a, b -> {\n\treturn if a == b then 1 else 0\n}");
+        node("ne", "\\a, b -> {\n\treturn if a != b then 1 else 0\n}");
+        compile();
+
+        for (double a : SPECIAL_NUMBERS) {
+            for (double b : SPECIAL_NUMBERS) {
+                // NumberValue.equals: -0.0 isn't 0.0, and NaN is NaN
+                boolean equal = Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+                assertAgree(equal ? 1 : 0, "eq", a, b);
+                assertAgree(equal ? 0 : 1, "ne", a, b);
+            }
+        }
+    }
+
+    @Test
+    void comparisonsWithNaNAreFalse() {
+        // what dcmpl (for >) and dcmpg (for <) have to get right
+        node("gt", "\\a, b -> {\n\treturn if a > b then 1 else 0\n}");
+        node("lt", "\\a, b -> {\n\treturn if a < b then 1 else 0\n}");
+        compile();
+
+        for (double a : SPECIAL_NUMBERS) {
+            for (double b : SPECIAL_NUMBERS) {
+                assertAgree(a > b ? 1 : 0, "gt", a, b);
+                assertAgree(a < b ? 1 : 0, "lt", a, b);
+            }
+        }
+    }
+
+    @Test
+    void modTruncatesToInts() {
+        node("mod", "\\a, b -> {\n\treturn %mod(a, b)\n}");
+        compile();
+
+        double[][] cases = {{7, 3}, {-7, 3}, {7, -3}, {-7, -3}, {7.9, 2}, {-7.9, 2}, {6, 3}, {0, 5}, {Double.NaN, 3}, {1e12, 7}};
+        for (double[] c : cases) assertAgree((int) c[0] % (int) c[1], "mod", c[0], c[1]);
+
+        for (Engine engine : Engine.values()) {
+            assertThrows(ArithmeticException.class, () -> call(engine, "mod", 1, 0), engine.toString());
+        }
+    }
+
+    @Test
+    void reassigningAnImportDeoptimizes() {
+        node("k", "\\n -> {\n\treturn n * n\n}");
+        node("f", "\\n -> {\n\treturn %k(n) + 1\n}");
+        node("reassign", "\\ -> {\n\tk <- \\n -> { return n + 5 }\n}");
+        imports("f", "k");
+        imports("reassign", "k");
+        compile();
+
+        FunctionLiteral f = function("f");
+        CompiledFunction compiled = JvmCompiler.compile(f);
+        assertNotNull(compiled);
+        assertTrue(compiled.isValid());
+
+        // hot enough to run compiled code from here on
+        JvmCompiler.setEnabled(true);
+        for (int i = 0; i < JvmCompiler.CALL_THRESHOLD * 2; i++) assertEquals(i * i + 1, f.callNumber(frame(f, i)));
+
+        nodes.get("reassign").runNode();
+
+        assertFalse(compiled.isValid());
+        for (int i = 0; i < JvmCompiler.CALL_THRESHOLD * 2; i++) assertEquals(i + 6, f.callNumber(frame(f, i)));
+        assertAgree(9, "f", 3);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.kernlang.compiler.parser.expressions;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.Compiler;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.parser.ParseResult;
+import com.example.kernlang.compiler.parser.SourceBuffer;
+import com.example.kernlang.compiler.parser.expressions.literals.FunctionLiteral;
+import com.example.kernlang.compiler.parser.expressions.literals.NumberLiteral;
+import com.example.kernlang.compiler.runtime.BoolValue;
+import com.example.kernlang.compiler.runtime.CharValue;
+import com.example.kernlang.compiler.runtime.Frame;
+import com.example.kernlang.compiler.runtime.NumberValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryExprTest {
+
+    private static ASTNode parse(String code) {
+        ParseResult result = new Expr().parse(new SourceBuffer(code), 0);
+        assertTrue(result.syntaxNode().isPresent(), "failed to parse " + code);
+        return result.syntaxNode().get();
+    }
+
+    private static GraphNode node(String code) {
+        GraphNode node = new GraphNode("test", 0, 0, null, 1);
+        node.setCodeString(code);
+        return node;
+    }
+
+    private static ArrayList<String> compileErrors(String code) {
+        return Compiler.compileNow(new ArrayList<>(List.of(node(code))));
+    }
+
+    private static ASTNode evaluate(String code) {
+        GraphNode node = node(code);
+        assertEquals(new ArrayList<String>(), Compiler.compileNow(new ArrayList<>(List.of(node))), code);
+        return node.getValue();
+    }
+
+    private static double number(String code) {
+        return assertInstanceOf(NumberValue.class, evaluate(code), code).getNumber();
+    }
+
+    private static boolean bool(String code) {
+        return assertInstanceOf(BoolValue.class, evaluate(code), code).getBool();
+    }
+
+    @Test
+    void operatorsOfEqualPrecedenceAreLeftAssociative() {
+        assertEquals(-6, number("1 - 2 - 3 * 2 + 10 / 5 / 2"));
+        assertEquals(1, number("8 / 4 / 2"));
+        assertEquals(-4, number("1 - 2 - 3"));
+
+        // (1 - 2) - 3, not 1 - (2 - 3)
+        AddSub outer = assertInstanceOf(AddSub.class, parse("1 - 2 - 3"));
+        AddSub inner = assertInstanceOf(AddSub.class, outer.getLeft());
+        assertEquals(3.0, assertInstanceOf(NumberLiteral.class, outer.getRight()).getNumber());
+        assertEquals(1.0, assertInstanceOf(NumberLiteral.class, inner.getLeft()).getNumber());
+    }
+
+    @Test
+    void tighterOperatorsBindFirst() {
+        assertEquals(7, number("1 + 2 * 3"));
+        assertEquals(9, number("(1 + 2) * 3"));
+        assertEquals(-6, number("-2 * 3"));
+        assertEquals(3, number("2 - -1"));
+
+        // 1 + (2 * 3) - (8 / 4) makes the top node the subtraction
+        AddSub top = assertInstanceOf(AddSub.class, parse("1 + 2 * 3 - 8 / 4"));
+        assertEquals('-', top.getOperator());
+        assertInstanceOf(MulDiv.class, top.getRight());
+        assertInstanceOf(MulDiv.class, assertInstanceOf(AddSub.class, top.getLeft()).getRight());
+
+        // comparisons take whole sums, and equality takes whole comparisons
+        assertTrue(bool("1 + 1 < 3"));
+        assertTrue(bool("1 < 2 == 3 > 2"));
+        assertInstanceOf(EqualityExpr.class, parse("1 < 2 == 3 > 2"));
+    }
+
+    @Test
+    void lessThanANegativeNumberIsNoArrow() {
+        assertEquals(2, number("if 0<-1 then 1 else 2"));
+        assertEquals(1, number("if 0 <-1 then 2 else 1"));
+        assertFalse(bool("0<-1"));
+        assertTrue(bool("-3<-2"));
+        // the minus only takes the operand right after it, like any unary minus
+        assertTrue(bool("1<-1+3"));
+        assertFalse(bool("-5<-1*6"));
+        assertTrue(bool("1<-1 == 2<-3"));
+
+        Comparison comparison = assertInstanceOf(Comparison.class, parse("0<-1+3"));
+        assertEquals('<', comparison.getOperator());
+        AddSub sum = assertInstanceOf(AddSub.class, comparison.getRight());
+        assertEquals('-', assertInstanceOf(UnaryExpr.class, sum.getLeft()).getOperator());
+    }
+
+    @Test
+    void equalityOnMixedOperands() {
+        assertTrue(bool("1 + 1 == 2"));
+        assertFalse(bool("-0 == 0"));
+        assertFalse(bool("1 == 'a'"));
+        assertTrue(bool("1 != 'a'"));
+        assertTrue(bool("'a' == 'a'"));
+        assertFalse(bool("true == 1"));
+        assertTrue(bool("true == true"));
+        assertFalse(bool("true != true"));
+    }
+
+    @Test
+    void equalityKeepsWorkingWhenItsOperandsChangeKind() {
+        GraphNode node = node("\\a, b -> {\n\treturn a == b\n}");
+        assertEquals(new ArrayList<String>(), Compiler.compileNow(new ArrayList<>(List.of(node))));
+        FunctionLiteral eq = (FunctionLiteral) node.getValue();
+
+        // numbers first, so the comparison specializes on them
+        assertEquals(BoolValue.TRUE, call(eq, new NumberValue(2), new NumberValue(2)));
+        assertEquals(BoolValue.FALSE, call(eq, new NumberValue(2), new NumberValue(3)));
+        assertEquals(BoolValue.TRUE, call(eq, CharValue.of('x'), CharValue.of('x')));
+        assertEquals(BoolValue.FALSE, call(eq, new NumberValue(120), CharValue.of('x')));
+        assertEquals(BoolValue.FALSE, call(eq, BoolValue.TRUE, new NumberValue(1)));
+        assertEquals(BoolValue.TRUE, call(eq, new NumberValue(2), new NumberValue(2)));
+    }
+
+    private static ASTNode call(FunctionLiteral function, ASTNode a, ASTNode b) {
+        Frame frame = new Frame(function, function.getFrameSize());
+        frame.set(0, a);
+        frame.set(1, b);
+        return function.call(frame);
+    }
+
+    @Test
+    void incompleteExpressionsFailToCompile() {
+        for (String code : List.of("1 +", "1 - 2 *", "1 2", "(1 + 2", "1 + 2)", "* 3", "1 == ", "if 1 then 2",
+                "%f(1,", "\\x -> { return x }}")) {
+            ArrayList<String> errors = compileErrors(code);
+            assertEquals(1, errors.size(), code);
+        }
+
+        assertEquals(List.of("node test : unexpected '+' after the expression"), compileErrors("1 +"));
+        assertEquals(List.of("node test : unexpected '2' after the expression"), compileErrors("1 2"));
+    }
+
+    @Test
+    void aMissingOperandStopsTheParseBeforeTheOperator() {
+        // expressions nested in other syntax may be followed by more of it, so BinaryExpr itself leaves the rest
+        ParseResult result = new Expr().parse(new SourceBuffer("1 + * 2"), 0);
+        assertEquals(1.0, assertInstanceOf(NumberLiteral.class, result.syntaxNode().orElseThrow()).getNumber());
+        assertEquals(1, result.position());
+
+        assertTrue(new Expr().parse(new SourceBuffer("* 2"), 0).syntaxNode().isEmpty());
+        assertTrue(new Expr().parse(new SourceBuffer(""), 0).syntaxNode().isEmpty());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.kernlang.compiler.parser.expressions.literals;
+
+import com.example.kernlang.codebase_viewer.graph.GraphNode;
+import com.example.kernlang.compiler.Compiler;
+import com.example.kernlang.compiler.parser.ASTNode;
+import com.example.kernlang.compiler.runtime.NumberValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Assigned arrays and records share what they hold until one of them changes it,
+ * which must look exactly like they were copied on assignment.
+ */
+class CopyOnWriteTest {
+    private final LinkedHashMap<String, GraphNode> nodes = new LinkedHashMap<>();
+
+    private void node(String name, String code, String... importNames) {
+        GraphNode node = new GraphNode(name, 0, 0, null, nodes.size() + 1);
+        node.setCodeString(code);
+        nodes.put(name, node);
+        for (String importName : importNames) node.importGraphNode(nodes.get(importName), false);
+    }
+
+    private void compileAndRun(String name) {
+        assertEquals(new ArrayList<String>(), Compiler.compileNow(new ArrayList<>(nodes.values())));
+        nodes.get(name).runNode();
+    }
+
+    private ASTNode value(String name) {
+        return nodes.get(name).getValue();
+    }
+
+    private static double number(ASTNode value) {
+        return assertInstanceOf(NumberValue.class, value).getNumber();
+    }
+
+    private static ASTNode element(ASTNode array, int... indices) {
+        for (int index : indices) array = assertInstanceOf(ArrayLiteral.class, array).getElement(index);
+        return array;
+    }
+
+    private static ASTNode field(ASTNode record, String... fieldNames) {
+        for (String fieldName : fieldNames) record = assertInstanceOf(RecordLiteral.class, record).getField(fieldName);
+        return record;
+    }
+
+    @Test
+    void writingIntoANestedRecordOfACopyLeavesTheOriginal() {
+        node("r", "{ inner = { x = 1 y = 2 } xs = [1, 2] }");
+        node("s", "0");
+        node("run", "\\ -> {\n\ts <- r\n\ts:inner:x <- 5\n\tr:inner:y <- 6\n}", "r", "s");
+        compileAndRun("run");
+
+        assertEquals(1, number(field(value("r"), "inner", "x")));
+        assertEquals(6, number(field(value("r"), "inner", "y")));
+        assertEquals(5, number(field(value("s"), "inner", "x")));
+        assertEquals(2, number(field(value("s"), "inner", "y")));
+    }
+
+    @Test
+    void copiesOfCopiesStayApart() {
+        node("q", "{ p = { v = 1 } }");
+        node("b", "0");
+        node("c", "0");
+        node("run", "\\ -> {\n\tb <- q\n\tc <- b\n\tc:p:v <- 3\n\tb:p:v <- 2\n}", "q", "b", "c");
+        compileAndRun("run");
+
+        assertEquals(1, number(field(value("q"), "p", "v")));
+        assertEquals(2, number(field(value("b"), "p", "v")));
+        assertEquals(3, number(field(value("c"), "p", "v")));
+    }
+
+    @Test
+    void writingThroughAParameterLeavesCopies() {
+        node("a", "[[1, 2], [3]]");
+        node("r", "{ inner = { x = 1 } }");
+        node("b", "0");
+        node("s", "0");
+        node("set", "\\arr, rec -> {\n\tarr[0] <- 9\n\trec:x <- 9\n}");
+        node("run", "\\ -> {\n\tb <- a\n\ts <- r\n\treturn %set(a[0], r:inner)\n}", "a", "r", "b", "s", "set");
+        compileAndRun("run");
+
+        // arguments aren't copied, so the function changes what it was given
+        assertEquals(9, number(element(value("a"), 0, 0)));
+        assertEquals(9, number(field(value("r"), "inner", "x")));
+        // but not the copies made before
+        assertEquals(1, number(element(value("b"), 0, 0)));
+        assertEquals(1, number(field(value("s"), "inner", "x")));
+    }
+
+    @Test
+    void elementsReadFromACopyAreTheirOwn() {
+        ArrayLiteral inner = new ArrayLiteral();
+        inner.addElement(new NumberValue(1));
+        ArrayLiteral outer = new ArrayLiteral();
+        outer.addElement(inner);
+        outer.addElement(new NumberValue(2));
+
+        ArrayLiteral copy = (ArrayLiteral) outer.deepcopy();
+        copy.setElement(1, new NumberValue(3));
+        ((ArrayLiteral) copy.getElement(0)).setElement(0, new NumberValue(4));
+        ((ArrayLiteral) outer.getElement(0)).addElement(new NumberValue(5));
+
+        assertEquals(2, number(outer.getElement(1)));
+        assertEquals(3, number(copy.getElement(1)));
+        assertEquals(1, number(element(outer, 0, 0)));
+        assertEquals(4, number(element(copy, 0, 0)));
+        assertEquals(2, ((ArrayLiteral) outer.getElement(0)).size());
+        assertEquals(1, ((ArrayLiteral) copy.getElement(0)).size());
+        assertEquals(1, number(element(inner, 0)));
+    }
+}